@@ -0,0 +1,234 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiBatch.java - Batches GUI operations and flushes them once per tick.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.risingworld.api.gui.GuiElement;
+import net.risingworld.api.objects.Player;
+import net.risingworld.api.utils.Vector2i;
+
+/**
+ * The batching layer between RWGui and the Rising World GUI API.
+ * <p>Adding elements to and removing elements from the screen of a player
+ * and changing the position and the visibility of elements are not done
+ * at once, but queued and flushed together once per tick, from the game
+ * thread. Operations cancelling each other out before the flush (adding
+ * and then removing the same element, hiding and then showing it back,
+ * ...) are dropped; only the last position set into an element is applied.
+ * <p>The batch does not try to know which elements are on the screen of
+ * each player across ticks, as elements can also be added and removed by
+ * plug-ins directly: only the operations queued within the same tick are
+ * matched against each other.
+ * <p>The batch is the only path through which RWGui writes the position and
+ * the visibility of its elements (GuiShadow applies them on flush), so that
+ * the writes to an element are always applied in the order they were made.
+ * Sizes, which the layout passes read back, are written at once through
+ * GuiShadow.
+ * <p>Elements shall not be detached from their parents while an operation
+ * on them is still queued: code removing elements from a player screen and
+ * then freeing them flushes the operations of the player first, with
+ * flush(Player), so that the client sees them removed before detached.
+ * <p>If the GuiExecutor tick is not running (i.e. before RWGui is
+ * enabled or after it is disabled), operations are applied immediately.
+ * <p>All the methods are thread-safe.
+ */
+final class GuiBatch
+{
+	//
+	// FIELDS
+	//
+	// player (session) id -> operations of the player
+	private static final	Map<Integer,PlayerOps>		players		= new HashMap<>();
+	// pending property changes, in order of first change
+	private static final	Map<GuiElement,Properties>	properties	= new LinkedHashMap<>();
+
+	private GuiBatch()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/** Queues the addition of element to the screen of player. */
+	static synchronized void add(Player player, GuiElement element)
+	{
+		queue(player, element, true);
+	}
+
+	/** Queues the removal of element from the screen of player. */
+	static synchronized void remove(Player player, GuiElement element)
+	{
+		queue(player, element, false);
+	}
+
+	/** Queues a change of the visibility of element. */
+	static synchronized void setVisible(GuiElement element, boolean visible)
+	{
+		if (!GuiExecutor.hasTick())
+		{
+			GuiShadow.setVisible(element, visible);
+			return;
+		}
+		getProperties(element).visible	= visible ? 1 : 0;
+	}
+
+	/** Queues a change of the position of element (in pixels). */
+	static synchronized void setPosition(GuiElement element, int x, int y)
+	{
+		if (!GuiExecutor.hasTick())
+		{
+			GuiShadow.setPosition(element, x, y);
+			return;
+		}
+		Properties	props	= getProperties(element);
+		props.hasPosition	= true;
+		props.x				= x;
+		props.y				= y;
+	}
+
+	/**
+	 * Stores into out the position of element (in pixels) last set through
+	 * the batch, even if still queued, or its current position if none.
+	 */
+	static synchronized Vector2i getPosition(GuiElement element, Vector2i out)
+	{
+		Properties	props	= properties.get(element);
+		if (props != null && props.hasPosition)
+		{
+			out.x	= props.x;
+			out.y	= props.y;
+		}
+		else
+		{
+			out.x	= (int)element.getPositionX();
+			out.y	= (int)element.getPositionY();
+		}
+		return out;
+	}
+
+	/** Forgets everything about player, typically on disconnection. */
+	static synchronized void removePlayer(Player player)
+	{
+		players.remove(player.getID());
+	}
+
+	/**
+	 * Applies all the queued operations; called once per tick from the game thread.
+	 */
+	static synchronized void flush()
+	{
+		flushProperties();		// first, so that elements are added in their final state
+		for (PlayerOps ops : players.values())
+			ops.flush();
+	}
+
+	/**
+	 * Applies at once the queued property changes and the queued operations
+	 * of player, typically before freeing elements removed from the player
+	 * screen.
+	 */
+	static synchronized void flush(Player player)
+	{
+		flushProperties();
+		PlayerOps	ops	= players.get(player.getID());
+		if (ops != null)
+			ops.flush();
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private static void queue(Player player, GuiElement element, boolean add)
+	{
+		PlayerOps	ops	= players.get(player.getID());
+		if (ops == null)
+		{
+			ops	= new PlayerOps(player);
+			players.put(player.getID(), ops);
+		}
+		ops.queue(element, add);
+		if (!GuiExecutor.hasTick())
+			ops.flush();
+	}
+
+	private static void flushProperties()
+	{
+		if (properties.isEmpty())
+			return;
+		for (Map.Entry<GuiElement,Properties> entry : properties.entrySet())
+		{
+			GuiElement	element	= entry.getKey();
+			Properties	props	= entry.getValue();
+			if (props.hasPosition)
+				GuiShadow.setPosition(element, props.x, props.y);
+			if (props.visible >= 0)
+				GuiShadow.setVisible(element, props.visible == 1);
+		}
+		properties.clear();
+	}
+
+	private static Properties getProperties(GuiElement element)
+	{
+		Properties	props	= properties.get(element);
+		if (props == null)
+		{
+			props	= new Properties();
+			properties.put(element, props);
+		}
+		return props;
+	}
+
+	private static final class PlayerOps
+	{
+		final	Player					player;
+		// element -> true to add it, false to remove it; in order of queuing
+		final	Map<GuiElement,Boolean>	pending		= new LinkedHashMap<>();
+
+		PlayerOps(Player player)
+		{
+			this.player	= player;
+		}
+
+		void queue(GuiElement element, boolean add)
+		{
+			Boolean	queued	= pending.get(element);
+			if (queued != null && queued != add)
+				pending.remove(element);	// the two operations cancel each other out
+			else
+				pending.put(element, add);
+		}
+
+		void flush()
+		{
+			if (pending.isEmpty())
+				return;
+			for (Map.Entry<GuiElement,Boolean> entry : pending.entrySet())
+			{
+				GuiElement	element	= entry.getKey();
+				if (entry.getValue())
+					player.addGuiElement(element);
+				else
+					player.removeGuiElement(element);
+			}
+			pending.clear();
+		}
+	}
+
+	private static final class Properties
+	{
+		int			visible		= -1;		// -1 = unchanged, 0 = hidden, 1 = visible
+		boolean		hasPosition	= false;
+		int			x, y;
+	}
+}
@@ -70,12 +70,12 @@ public class GuiCheckBox extends GuiLayout
 				(radio ? RWGui.ICN_RADIO_CHECK : RWGui.ICN_CHECK) :
 				(radio ? RWGui.ICN_RADIO_UNCHECK : RWGui.ICN_UNCHECK) );
 		super.addChild(checkBox, RWGui.PGUP_ID, null);	// use a dummy id to have it clickable
-		checkBox.setPivot(PivotPosition.BottomLeft);
+		GuiShadow.setPivot(checkBox, PivotPosition.BottomLeft);
 		// The LABEL
 		label	= new GuiLabel(text, RWGui.BUTTON_SIZE + RWGui.DEFAULT_PADDING,
 				(RWGui.BUTTON_SIZE - RWGui.ITEM_SIZE) / 2, false);
 		super.addChild(label, RWGui.PGUP_ID, null);
-		label.setPivot(PivotPosition.BottomLeft);
+		GuiShadow.setPivot(label, PivotPosition.BottomLeft);
 		setState(initialState);
 	}
 
@@ -105,9 +105,9 @@ public class GuiCheckBox extends GuiLayout
 				(radio ? RWGui.ICN_RADIO_CHECK : RWGui.ICN_CHECK) :
 				(radio ? RWGui.ICN_RADIO_UNCHECK : RWGui.ICN_UNCHECK) );
 		label.setFontColor(state == DISABLED ? RWGui.TEXT_DIM_COLOUR : RWGui.TEXT_COLOUR);
-		setClickable(newState != DISABLED);
-		checkBox.setClickable(newState != DISABLED);
-		label.setClickable(newState != DISABLED);
+		GuiShadow.setClickable(this, newState != DISABLED);
+		GuiShadow.setClickable(checkBox, newState != DISABLED);
+		GuiShadow.setClickable(label, newState != DISABLED);
 		// with radio buttons, toggle other radios in the same parent
 		if (radio && newState == CHECKED)
 		{
@@ -115,12 +115,13 @@ public class GuiCheckBox extends GuiLayout
 			if (parent != null && parent instanceof GuiLayout)
 			{
 				// if parent is a layout, scan other children
-				for (Pair<GuiElement,Pair<Integer,Object>>item : ((GuiLayout)parent).children)
+				GuiLayout	layout	= (GuiLayout)parent;
+				for (int i = 0; i < layout.getChildCount(); i++)
 				{
-					if (item.getL() instanceof GuiCheckBox)
+					if (layout.getChild(i) instanceof GuiCheckBox)
 					{
 						// if the child is a GuiCheckBox, is a radio box and is checked, un-check it
-						GuiCheckBox	box	= (GuiCheckBox)item.getL();
+						GuiCheckBox	box	= (GuiCheckBox)layout.getChild(i);
 						if (box.isRadio() && box.getState() == CHECKED && box != this)
 							box.setState(UNCHECKED);
 					}
@@ -129,33 +130,41 @@ public class GuiCheckBox extends GuiLayout
 		}
 	}
 
+	/**
+	 * Measures the box: the image and the label side by side.
+	 */
+	@Override
+	void measure()
+	{
+		int		fontSize	= label.getFontSize();
+		measuredWidth	= margin * 2 + RWGui.BUTTON_SIZE + padding
+				+ (int)Math.ceil(RWGui.getTextWidth(label.getText(), fontSize));
+		measuredHeight	= Math.max(fontSize, RWGui.BUTTON_SIZE) + margin * 2;
+	}
+
 	/**
 	 * Places the image and the label in the containing panel and sets the
-	 * panel sizes.
+	 * panel sizes. The box always keeps its measured size.
 	 */
 	@Override
-	void layout(int minWidth, int minHeight, boolean reset)
+	void arrange(int width, int height)
 	{
 		int		fontSize	= label.getFontSize();
-		int		height;
 		// if label taller than check box, align check box at the middle of label font
 		if (fontSize > RWGui.BUTTON_SIZE)
 		{
-			height	= label.getFontSize();
-			checkBox.setPosition(margin, margin + (height - RWGui.BUTTON_SIZE) / 2, false);
-			label.setPosition(margin + RWGui.BUTTON_SIZE + padding, margin, false);
+			GuiBatch.setPosition(checkBox, margin, margin + (fontSize - RWGui.BUTTON_SIZE) / 2);
+			GuiBatch.setPosition(label, margin + RWGui.BUTTON_SIZE + padding, margin);
 		}
 		// if check box taller than label, align label at the middle of check box
 		else
 		{
-			height	= RWGui.BUTTON_SIZE;
-			checkBox.setPosition(margin, margin, false);
-			label.setPosition(margin + RWGui.BUTTON_SIZE + padding,
-					margin + (RWGui.BUTTON_SIZE - fontSize) / 2, false);
+			GuiBatch.setPosition(checkBox, margin, margin);
+			GuiBatch.setPosition(label, margin + RWGui.BUTTON_SIZE + padding,
+					margin + (RWGui.BUTTON_SIZE - fontSize) / 2);
 		}
 		// set total panel sizes
-		setSize(margin * 2 + RWGui.BUTTON_SIZE + padding + RWGui.getTextWidth(label.getText(), fontSize),
-				height + margin * 2, false);
+		GuiShadow.setSize(this, measuredWidth, measuredHeight);
 	}
 
 	/**
@@ -195,6 +204,26 @@ public class GuiCheckBox extends GuiLayout
 		return null;
 	}
 
+	// Indexes the box and its parts as managed by the box itself, as
+	// getItemId() reports its own id for any of them and updates the state.
+	@Override
+	void indexChildren(ItemIndex index, boolean add)
+	{
+		if (add)
+		{
+			itemIndex	= index;
+			index.put(this, this, -1);
+			index.put(checkBox, this, -1);
+			index.put(label, this, -1);
+		}
+		else
+		{
+			index.remove(this);
+			index.remove(checkBox);
+			index.remove(label);
+		}
+	}
+
 	/** Overridden, does nothing */
 	@Override
 	public void addChild(GuiElement element)	{	}
@@ -34,7 +34,7 @@ public class GuiDialogueBox extends GuiModalWindow	// GuiPanel implements Listen
 	/**
 	 * Creates a new GuiDialogueBox.
 	 * @param	plugin		the plug-in the DialogueBox is intended for. This
-	 * 						is only needed to manage the internal event listener
+	 * 						is currently not used by the window
 	 * 						and has no effects on the plug-in itself.
 	 * @param	title		the text of the title.
 	 * @param	layoutType	the type of the layout (one of the RWGui.LAYOUT_HORIZ
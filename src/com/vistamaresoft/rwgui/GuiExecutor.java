@@ -0,0 +1,194 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiExecutor.java - The single-threaded executor of all RWGui GUI changes.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.concurrent.atomic.AtomicReference;
+import net.risingworld.api.Timer;
+
+/**
+ * The GUI executor: the single thread all the changes to RWGui windows,
+ * layouts and player window stacks are confined to.
+ * <p>The GUI thread is the game thread: GUI events are received on it and a
+ * timer ticking on it runs, at each tick, the tasks posted from other threads,
+ * turns the RWGui timer wheel and flushes the batched GUI operations.
+ * <p>While the tick runs, tasks can be posted from any thread without
+ * locking: worker threads can hand their results off to the GUI with post().
+ * The methods of
+ * GuiModalWindow and GuiModelessWindow showing, closing and chaining windows
+ * already post themselves when called from another thread; other changes
+ * to windows and layouts shall be made on the GUI thread, or posted to it.
+ * <p>While RWGui is not enabled, there is no tick: tasks are run at once,
+ * in the calling thread, but still one at a time, holding the executor lock;
+ * while a task is running so, isGuiThread() is true for its thread.
+ * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
+ * <b>this class cannot be used in any way</b> from within the onEnable()
+ * method of a plug-in, as it is impossible to be sure that, at that moment,
+ * the RWGui plug-in has already been loaded.
+ */
+public final class GuiExecutor
+{
+	// CONSTANTS
+	//
+	// the interval (in seconds) between two ticks
+	static final float		TICK_INTERVAL	= 0.05f;
+
+	//
+	// FIELDS
+	//
+	// the task queue: a multi-producer, single-consumer linked list; producers
+	// only swap the tail, the consumer alone follows the links from the head
+	private static final	AtomicReference<Node>	tail		= new AtomicReference<>(new Node(null));
+	private static			Node					head		= tail.get();
+	private static volatile	Thread					guiThread;
+	private static volatile	Timer					timer;
+
+	private GuiExecutor()	{	}
+
+	//********************
+	// PUBLIC METHODS
+	//********************
+
+	/**
+	 * Queues task to be run on the GUI thread at the next tick, whatever
+	 * the calling thread; if RWGui is not enabled, the task is run at once.
+	 * <p>This method can be called from any thread; it is lock-free while
+	 * RWGui is enabled.
+	 * @param	task	the task to run.
+	 */
+	public static void post(Runnable task)
+	{
+		Node	node	= new Node(task);
+		tail.getAndSet(node).next	= node;
+		// checked after queuing: if the tick has been stopped meanwhile, the
+		// task might have been queued after the final drain of stop()
+		if (timer == null)
+			drain();
+	}
+
+	/**
+	 * Runs task at once if called from the GUI thread, otherwise queues it
+	 * as post() does.
+	 * @param	task	the task to run.
+	 */
+	public static void execute(Runnable task)
+	{
+		if (isGuiThread())
+			task.run();
+		else
+			post(task);
+	}
+
+	/**
+	 * Whether the calling thread is the GUI thread, i.e. whether GUI changes
+	 * can be made directly. While RWGui is not enabled, this is true only for
+	 * a thread running a task posted to the executor.
+	 * @return	true if GUI changes can be made from the calling thread.
+	 */
+	public static boolean isGuiThread()
+	{
+		return timer == null ? Thread.holdsLock(GuiExecutor.class)
+				: Thread.currentThread() == guiThread;
+	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/** Starts the tick; to be called from the game thread on RWGui enabling. */
+	static void start()
+	{
+		guiThread	= Thread.currentThread();
+		timer		= new Timer(TICK_INTERVAL, 0, -1, GuiExecutor::tick);
+		timer.start();
+	}
+
+	/**
+	 * Stops the tick, running any task still queued; tasks posted afterwards
+	 * are run at once by post().
+	 */
+	static void stop()
+	{
+		if (timer != null)
+		{
+			timer.kill();
+			timer	= null;			// published before the final drain
+		}
+		tick();
+	}
+
+	/**
+	 * Whether the tick is running, i.e. whether work can be deferred to the
+	 * next tick.
+	 */
+	static boolean hasTick()
+	{
+		return timer != null;
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private static void tick()
+	{
+		guiThread	= Thread.currentThread();
+		try
+		{
+			drain();
+		}
+		finally								// a failing timeout shall not stall the batch either
+		{
+			try
+			{
+				TimerWheel.tick();
+			}
+			finally
+			{
+				GuiBatch.flush();			// GUI changes made by the tasks included
+			}
+		}
+	}
+
+	// Runs all the queued tasks. The lock is only contended once the tick
+	// is stopped, when the threads posting tasks drain the queue themselves.
+	// A task throwing is reported and does not prevent the others from running.
+	private static synchronized void drain()
+	{
+		Node	next;
+		while ( (next = head.next) != null)
+		{
+			Runnable	task	= next.task;
+			next.task	= null;				// the node becomes the new (empty) head
+			head		= next;
+			try
+			{
+				task.run();
+			}
+			catch (RuntimeException e)
+			{
+				System.err.println("RWGui: a GUI task failed: " + e);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static final class Node
+	{
+		Runnable		task;
+		volatile Node	next;
+
+		Node(Runnable task)
+		{
+			this.task	= task;
+		}
+	}
+}
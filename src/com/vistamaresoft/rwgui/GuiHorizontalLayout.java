@@ -13,9 +13,7 @@
 package com.vistamaresoft.rwgui;
 
 //import java.util.ArrayList;
-import com.vistamaresoft.rwgui.RWGui.Pair;
 import net.risingworld.api.gui.GuiElement;
-import net.risingworld.api.utils.Vector2i;
 
 /**
 	A class implementing an automatic horizontal layout in which children
@@ -64,70 +62,75 @@ public class GuiHorizontalLayout extends GuiLayout
 		super(flags);
 	}
 
+	/**
+		Measures the natural size of the layout: the children side by side,
+		separated by the padding, within the margins.
+	*/
+	@Override
+	void measure()
+	{
+		int		height	= 0;
+		int		width	= 0;
+		for (int i = 0; i < numOfChildren; i++)
+		{
+			measureChild(elements[i], sizes);
+			if (height < sizes.y)
+				height	= sizes.y;
+			width	+= sizes.x + padding;
+		}
+		measuredWidth	= numOfChildren > 0 ? width + margin * 2 - padding : 0;
+		measuredHeight	= numOfChildren > 0 ? height + margin * 2 : 0;
+	}
+
 	/**
 		Places child elements side by side from left to right.
 
-		As this method lays its children out recursively, it is usually
-		necessary to call this method manually only for the top layout of a
-		layout hierarchy.
+		Sub-layouts are arranged as tall as the layout allows.
 	*/
 	@Override
-	void layout(int minWidth, int minHeight, boolean reset)
+	void arrange(int width, int height)
 	{
-		int		height, width;
-		if (children == null || children.isEmpty())
+		if (numOfChildren == 0)
 			return;
-		Vector2i[]	elemSizes	= new Vector2i[children.size()];
-		if (reset)
-		{
-			width		= minWidth	= 0;
-			height		= minHeight;
-		}
-		else
-		{
-			width		= 0;
-			height		= (int)getHeight() - margin*2;	// the height within which to fit children
-		}												// excludes top and bottom margin
-		int		count	= 0;
-		for (Pair<GuiElement,?> item : children)
+		allocSizes(numOfChildren);
+		int		innerHeight	= height - margin*2;	// the height within which to fit children
+		int		usedWidth	= 0;
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			GuiElement	element			= item.getL();
+			GuiElement	element			= elements[i];
 			if (element instanceof GuiLayout)
-				((GuiLayout)element).layout(0, height, reset);
-			elemSizes[count]	= RWGui.getElementSizes(element);
-			if (height < elemSizes[count].y)
-				height	= elemSizes[count].y;
-			width	+= elemSizes[count].x + padding;
-			count++;
+			{
+				GuiLayout	layout	= (GuiLayout)element;
+				layout.arrangeCached(layout.measuredWidth, Math.max(innerHeight, layout.measuredHeight));
+			}
+			RWGui.getElementSizes(element, sizes);
+			elemWidths[i]	= sizes.x;
+			elemHeights[i]	= sizes.y;
+			usedWidth	+= sizes.x + padding;
 		}
-		height	+=	margin * 2;				// add back top and bottom margin
-		width	+= margin * 2 - padding;	// add left and right margin and discount last right padding
+		usedWidth	+= margin * 2 - padding;	// add left and right margin and discount last right padding
 
 		int		spacing	= padding;
 		int		x		= margin;
 		int		y;
-		if (minWidth > width)
+		if (width > usedWidth)
 		{
 			if ( (flags & RWGui.LAYOUT_H_RIGHT) != 0)
-				x	= minWidth - width;
+				x	= width - usedWidth;
 			else if ( (flags & RWGui.LAYOUT_H_CENTRE) != 0)
-				x	= (minWidth - width) / 2;
-			else if ( (flags & RWGui.LAYOUT_H_SPREAD) != 0)
-				spacing	= (minWidth - width) / (children.size() - 1);
-			width	= minWidth;
+				x	= (width - usedWidth) / 2;
+			else if ( (flags & RWGui.LAYOUT_H_SPREAD) != 0 && numOfChildren > 1)
+				spacing	= (width - usedWidth) / (numOfChildren - 1);
 		}
-		count	= 0;
-		for (Pair<GuiElement,?> item : children)
+		for (int i = 0; i < numOfChildren; i++)
 		{
 			// position the next element on the left of previous children
-			Vector2i	elementSizes	= elemSizes[count];
-			y			= (flags & RWGui.LAYOUT_V_MIDDLE) != 0 ? (height + elementSizes.y) / 2 :
-				( (flags & RWGui.LAYOUT_V_BOTTOM) != 0 ? height - margin - elementSizes.y : height - margin);
-			item.getL().setPosition(x, y, false);
-			x	+= elementSizes.x + spacing;
-			count++;
+			y			= (flags & RWGui.LAYOUT_V_MIDDLE) != 0 ? (height + elemHeights[i]) / 2 :
+				( (flags & RWGui.LAYOUT_V_BOTTOM) != 0 ? height - margin - elemHeights[i] : height - margin);
+			GuiBatch.setPosition(elements[i], x, y);
+			x	+= elemWidths[i] + spacing;
 		}
-		setSize(width, height, false);
+		GuiShadow.setSize(this, width, height);
 	}
 
 }
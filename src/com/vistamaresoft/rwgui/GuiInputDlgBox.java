@@ -45,7 +45,7 @@ public class GuiInputDlgBox extends GuiDialogueBox
 	 * Constructs a new GuiInputDlgBox.
 	 * 
 	 * @param	plugin		the plug-in the DialogueBox is intended for. This
-	 * 						is only needed to manage the internal event listener
+	 * 						is currently not used by the window
 	 * 						and has no effects on the plug-in itself.
 	 * @param	player		the player to show the window to.
 	 * @param	title		the text of the title.
@@ -13,6 +13,10 @@
 package com.vistamaresoft.rwgui;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
 import com.vistamaresoft.rwgui.RWGui.Pair;
 import net.risingworld.api.gui.GuiElement;
 import net.risingworld.api.gui.GuiImage;
@@ -21,6 +25,7 @@ import net.risingworld.api.gui.GuiPanel;
 import net.risingworld.api.gui.GuiTextField;
 import net.risingworld.api.gui.PivotPosition;
 import net.risingworld.api.objects.Player;
+import net.risingworld.api.utils.Vector2i;
 
 /**
 	A class which is the base for all RWGui classes supporting
@@ -32,6 +37,10 @@ import net.risingworld.api.objects.Player;
 	<p>Each GuiLayout has a specific arrangement of its children, according to the
 	specific subclass used (GuiHorizontalLayout, GuiVerticalLayout, ...).
 	It can have more GuiLayout's as children to achieve complex structures.
+	<p><b>Compatibility note</b>: the protected children field, the list of
+	the children with their id/data pairs, has been replaced by internal
+	arrays; sub-classes which accessed it directly can use the deprecated
+	getChildren() method, returning a read-only copy of the same list.
  * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
  * <b>this class</b> (or its sub-classes) <b>cannot instantiated or used in any way</b>
  * from within the onEnable() method of a plug-in, as it is impossible to be
@@ -42,12 +51,35 @@ import net.risingworld.api.objects.Player;
 */
 public class GuiLayout extends GuiPanel
 {
-	protected	ArrayList<Pair<GuiElement,Pair<Integer,Object>>>
-						children	= null;
+	// the size of an arrange pass not run yet
+	private static final	int	NO_SIZE		= -1;
+
+	// the children, with their ids and data, stored in parallel arrays;
+	// only the first numOfChildren entries are used. A child added with a
+	// null id has a false hasIds entry (its ids entry is meaningless), so that
+	// any int value can be an id
+	GuiElement[]		elements	= null;
+	int[]				ids			= null;
+	boolean[]			hasIds		= null;
+	Object[]			datas		= null;
+	int					numOfChildren	= 0;
+	// the index of the elements of the whole hierarchy this layout belongs to
+	ItemIndex			itemIndex	= new ItemIndex();
+	// whether the hierarchy below the layout changed since it was last
+	// measured; while not dirty, the measured size is still valid
+	boolean				dirty		= true;
+	// the natural size of the layout, computed by the measure pass
+	int					measuredWidth, measuredHeight;
+	// the size of the last arrange pass, NO_SIZE if it has to run again
+	private	int			arrangedWidth	= NO_SIZE,	arrangedHeight;
 	protected	int		flags		= RWGui.LAYOUT_V_TOP & RWGui.LAYOUT_H_LEFT;
 	int					margin		= 0;
 	int					padding		= RWGui.DEFAULT_PADDING;
 	protected	int		shown		= 0;
+	// scratch storage for the sizes of the children during layout passes
+	final		Vector2i	sizes	= new Vector2i();
+	int[]				elemWidths;
+	int[]				elemHeights;
 
 	public GuiLayout(int flags)
 	{
@@ -62,6 +94,13 @@ public class GuiLayout extends GuiPanel
 		As this method lays its children out recursively, it is usually
 		necessary to call this method manually only for the top layout of a
 		layout hierarchy.
+		<p>The layout is laid out in two passes: a measure pass, computing
+		bottom-up the natural size of each layout of the hierarchy, and an
+		arrange pass, setting top-down the actual size of each layout and the
+		position of its children. Each layout remembers the results of both
+		passes, which are re-used until the layout changes: if nothing changed
+		since the layout was last laid out with the same minimum sizes, this
+		method does nothing.
 		@param	minWidth	the minimum width which the context within which the
 							is placed requires the layout to have; use 0 if there
 							no external constrains.
@@ -71,10 +110,25 @@ public class GuiLayout extends GuiPanel
 	*/
 	public void layout(int minWidth, int minHeight)
 	{
-		layout(minWidth, minHeight, true);		// layout with no constrain
-		int height	= (int)getHeight();
-		int	width	= (int)getWidth();
-		layout(width, height, false);			// re-layout within actual width and height
+		measureCached();
+		arrangeCached(Math.max(minWidth, measuredWidth), Math.max(minHeight, measuredHeight));
+	}
+
+	/**
+	 * Marks the layout and all the layouts containing it as changed, so that
+	 * they are laid out again the next time they are laid out or displayed.
+	 * <p>Adding or removing children or changing the layout settings already
+	 * does this; this method is only needed after changing the contents of a
+	 * child in a way which affects its size (for instance, the text of a
+	 * GuiLabel).
+	 */
+	public void invalidate()
+	{
+		dirty			= true;
+		arrangedWidth	= NO_SIZE;
+		GuiElement	parent	= getParent();
+		if (parent instanceof GuiLayout)
+			((GuiLayout)parent).invalidate();
 	}
 
 	/**
@@ -91,16 +145,30 @@ public class GuiLayout extends GuiPanel
 	 */
 	public void free()
 	{
-		for (Pair<GuiElement,Pair<Integer,Object>> item : children)
+		// queued operations on the elements shall reach the client before
+		// they are detached; the top layout of the hierarchy flushes them
+		if (!(getParent() instanceof GuiLayout))
+			GuiBatch.flush();
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			if (item == null)
+			GuiElement	element	= elements[i];
+			if (element == null)
 				continue;
-			GuiElement	element	= item.getL();
 			if (element instanceof GuiLayout)
 				((GuiLayout)element).free();
+			else if (element instanceof GuiImage)
+				RWGui.releaseImage((GuiImage)element);
+			itemIndex.remove(element);
+			removeId(itemIndex, i);
 			super.removeChild(element);
 		}
-		children.clear();
+		if (numOfChildren > 0)
+		{
+			Arrays.fill(elements, 0, numOfChildren, null);
+			Arrays.fill(datas, 0, numOfChildren, null);
+			numOfChildren	= 0;
+		}
+		invalidate();
 	}
 
 	/**
@@ -117,31 +185,31 @@ public class GuiLayout extends GuiPanel
 	 */
 	public void hide(Player player)
 	{
-		for (Pair<GuiElement,Pair<Integer,Object>> item : children)
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			if (item == null)
+			GuiElement	element	= elements[i];
+			if (element == null)
 				continue;
-			GuiElement	element	= item.getL();
 			if (element instanceof GuiLayout)
 				((GuiLayout)element).hide(player);
 			else
-				player.removeGuiElement(element);
+				GuiBatch.remove(player, element);
 		}
-		player.removeGuiElement(this);
+		GuiBatch.remove(player, this);
 	}
 
 	/**
 	 * Sets the margin between the contents of the layout and its edges.
 	 * @param value	the new padding (in pixels).
 	 */
-	public void setMargin(int value)	{	this.margin		= value;	}
+	public void setMargin(int value)	{	this.margin		= value;	invalidate();	}
 
 	/**
 	 * Sets the padding (i.e. the minimum distance) between two side-by-side
 	 * elements of the layout (in pixels),
 	 * @param value	the new padding (in pixels).
 	 */
-	public void setPadding(int value)	{	this.padding	= value;	}
+	public void setPadding(int value)	{	this.padding	= value;	invalidate();	}
 
 	/**
 	 * Displays the layout on the player screen.
@@ -154,16 +222,16 @@ public class GuiLayout extends GuiPanel
 	 */
 	public void show(Player player)
 	{
-		player.addGuiElement(this);
-		for (Pair<GuiElement,Pair<Integer,Object>> item : children)
+		GuiBatch.add(player, this);
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			if (item == null)
+			GuiElement	element	= elements[i];
+			if (element == null)
 				continue;
-			GuiElement	element	= item.getL();
 			if (element instanceof GuiLayout)
 				((GuiLayout)element).show(player);
 			else
-				player.addGuiElement(element);
+				GuiBatch.add(player, element);
 		}
 		shown++;
 	}
@@ -215,21 +283,12 @@ public class GuiLayout extends GuiPanel
 	{
 		if (element == null)
 			return;
-		if (children == null)
-			children	= new ArrayList<>(4);
-		children.add(new Pair<>(element, new Pair<>(id, data)));
-		if (element instanceof GuiImage)
-			((GuiImage)element).setClickable(id != null);
-		else if (element instanceof GuiLabel)
-		{
-			((GuiLabel)element).setClickable(id != null);
+		appendChild(element, id, data);
+		GuiShadow.setClickable(element, id != null);
+		if (element instanceof GuiLabel)
 			((GuiLabel)element).setFontSize(RWGui.ITEM_SIZE);
-		}
-		else if (element instanceof GuiPanel)
-			((GuiPanel)element).setClickable(id != null);
 		else if (element instanceof GuiTextField)
 		{
-			((GuiTextField)element).setClickable(id != null);
 			((GuiTextField)element).setBorderThickness(1, false);
 			((GuiTextField)element).setBackgroundPreset(1);
 			((GuiTextField)element).setEditable(id != null);
@@ -238,14 +297,14 @@ public class GuiLayout extends GuiPanel
 		if (this instanceof GuiVerticalLayout)
 		{
 			if ( (flags & RWGui.LAYOUT_H_RIGHT) != 0)
-				element.setPivot(PivotPosition.TopRight);
+				GuiShadow.setPivot(element, PivotPosition.TopRight);
 			else if( (flags & RWGui.LAYOUT_H_CENTRE) != 0)
-					element.setPivot(PivotPosition.Center);
+					GuiShadow.setPivot(element, PivotPosition.Center);
 			else
-				element.setPivot(PivotPosition.TopLeft);
+				GuiShadow.setPivot(element, PivotPosition.TopLeft);
 		}
 		else
-			element.setPivot(PivotPosition.TopLeft);
+			GuiShadow.setPivot(element, PivotPosition.TopLeft);
 		super.addChild(element);
 	}
 
@@ -259,15 +318,29 @@ public class GuiLayout extends GuiPanel
 	@Override
 	public void removeChild(GuiElement element)
 	{
-		if (children == null || element == null)
+		int	index	= indexOfChild(element);
+		if (index == -1)
 			return;
-		for (Pair<GuiElement,Pair<Integer,Object>> item : children)
-			if (item != null && item.getL() == element)
-			{
-				children.remove(item);
-				super.removeChild(element);
-				break;
-			}
+		itemIndex.remove(element);
+		removeId(itemIndex, index);
+		if (element instanceof GuiLayout)		// the removed sub-hierarchy gets an index of its own
+		{
+			((GuiLayout)element).indexChildren(itemIndex, false);
+			((GuiLayout)element).indexChildren(new ItemIndex(), true);
+		}
+		numOfChildren--;
+		System.arraycopy(elements, index + 1, elements, index, numOfChildren - index);
+		System.arraycopy(ids, index + 1, ids, index, numOfChildren - index);
+		System.arraycopy(hasIds, index + 1, hasIds, index, numOfChildren - index);
+		System.arraycopy(datas, index + 1, datas, index, numOfChildren - index);
+		elements[numOfChildren]	= null;
+		datas[numOfChildren]	= null;
+		for (int i = index; i < numOfChildren; i++)
+			if (elements[i] != null)
+				itemIndex.move(elements[i], this, i);
+		super.removeChild(element);
+		GuiShadow.forget(element);
+		invalidate();
 	}
 
 	/**
@@ -324,19 +397,17 @@ public class GuiLayout extends GuiPanel
 	 */
 	public Integer getItemId(GuiElement element)
 	{
-		for (Pair<GuiElement,Pair<Integer, Object>> item : children)
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			if (item == null)
-				continue;
-			GuiElement	e	= item.getL();
+			GuiElement	e	= elements[i];
 			if (e instanceof GuiLayout)
 			{
 				Integer	id	= ((GuiLayout)e).getItemId(element);
 				if (id != null)
 					return id;
 			}
-			if (item.getL() == element)
-				return item.getR().getL();
+			if (e == element && e != null)
+				return getId(i);
 		}
 		return null;
 	}
@@ -344,6 +415,8 @@ public class GuiLayout extends GuiPanel
 	/**
 	 * Returns the id and data pair associated with element, if element is one
 	 * of the children of the layout (recursively); or null otherwise.
+	 * <p>The pair is a new copy: changing it does not change the id or the
+	 * data of the element.
 
 	 * @param	element	the GuiElement to look for.
 	 * @return	the id and data pair associated with element if present,
@@ -351,46 +424,381 @@ public class GuiLayout extends GuiPanel
 	 */
 	public Pair<Integer,Object> getItemData(GuiElement element)
 	{
-		for (Pair<GuiElement,Pair<Integer, Object>> item : children)
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			if (item == null)
-				continue;
-			GuiElement	e	= item.getL();
+			GuiElement	e	= elements[i];
 			if (e instanceof GuiLayout)
 			{
 				Pair<Integer,Object>	data	= ((GuiLayout)e).getItemData(element);
 				if (data != null)
 					return data;
 			}
-			if (item.getL() == element)
-				return item.getR();
+			if (e == element && e != null)
+				return getPair(i);
 		}
 		return null;
 	}
 
 	/**
-	 * Returns the child with the given id or null if none.
+	 * Returns the child with the given id, at any level below this layout,
+	 * or null if none; if several children have the id, the first one added
+	 * is returned.
+	 * <p>The child is looked up in the index of the whole layout hierarchy
+	 * this layout belongs to, rather than by scanning the children; elements
+	 * with the same id elsewhere in the hierarchy (in the layouts containing
+	 * this layout or in sibling layouts) are skipped.
 	 * @param id	the id to look for.
 	 * @return	the child GuiElement with the given id or null if none is found.
 	 */
 	public GuiElement getChildFromId(int id)
 	{
-		for (Pair<GuiElement,Pair<Integer, Object>> item : children)
+		for (ItemIndex.Entry entry = itemIndex.getFirst(id); entry != null; entry = entry.nextSameId)
+			if (isWithin(entry.owner))
+				return entry.element;
+		return null;
+	}
+
+	/**
+	 * Looks up the children with the given ids and passes each of them,
+	 * with its id, to updater; ids with no matching child are skipped.
+	 * <p>Useful to refresh many controls at once, for instance the cells of
+	 * a table. Children are searched as with getChildFromId(); if the updates
+	 * change the sizes of the children, the layout should be laid out again.
+	 * @param	ids		the ids of the children to update
+	 * @param	updater	the function updating each child
+	 * @return	the number of children found and updated.
+	 */
+	public int updateChildren(int[] ids, ObjIntConsumer<GuiElement> updater)
+	{
+		int	count	= 0;
+		for (int id : ids)
 		{
-			if (item == null)
-				continue;
-			if (item.getR().getL() == id)
-				return item.getL();
+			GuiElement	element	= getChildFromId(id);
+			if (element != null)
+			{
+				updater.accept(element, id);
+				count++;
+			}
 		}
-		return null;
+		return count;
+	}
+
+	/**
+	 * Returns the direct children of the layout, each paired with its
+	 * id/data pair, in the form of the former protected children field.
+	 * <p>The list is a read-only copy: changing it does not change the layout.
+	 * @return	a read-only List of element, id/data Pair's.
+	 * @deprecated	the children field this replaces is no longer available;
+	 *				use getItemId(), getItemData() and getChildFromId() instead.
+	 */
+	@Deprecated
+	protected List<Pair<GuiElement,Pair<Integer,Object>>> getChildren()
+	{
+		ArrayList<Pair<GuiElement,Pair<Integer,Object>>>	list	= new ArrayList<>(numOfChildren);
+		for (int i = 0; i < numOfChildren; i++)
+			list.add(new Pair<>(elements[i], getPair(i)));
+		return Collections.unmodifiableList(list);
 	}
 
 	//
 	// PROTECTED METHODS
 	//
-	void layout(int minWidth, int minHeight, boolean reset)
+	// The measure pass: computes the natural size of the layout into
+	// measuredWidth and measuredHeight, measuring the children (and the
+	// sub-layouts, with measureCached()) but without moving anything.
+	void measure()
+	{
+		measuredWidth	= measuredHeight	= 0;
+	}
+
+	// The arrange pass: sets the size of the layout to width x height (at
+	// least its measured size) and positions the children, arranging the
+	// sub-layouts (with arrangeCached()) in the space they get. It can rely
+	// on the measure pass having already run.
+	void arrange(int width, int height)
+	{
+		GuiShadow.setSize(this, width, height);
+	}
+
+	// Runs the measure pass, unless the measured size is still valid.
+	void measureCached()
+	{
+		if (!dirty)
+			return;
+		measure();
+		dirty	= false;
+	}
+
+	// Runs the arrange pass, unless the layout has already been arranged
+	// with the same size and did not change since.
+	void arrangeCached(int width, int height)
+	{
+		measureCached();
+		if (width == arrangedWidth && height == arrangedHeight)
+			return;
+		arrange(width, height);
+		arrangedWidth	= width;
+		arrangedHeight	= height;
+	}
+
+	// Copies the results of the layout passes of proto, instead of running
+	// them: the sizes of the layout and of its sub-layouts, the positions of
+	// all the children and the measured sizes, so that the layout can later
+	// be arranged again without measuring it. proto shall be laid out;
+	// returns false, leaving the layout to be laid out normally, unless the
+	// two hierarchies have the same structure (same classes and numbers of
+	// children, recursively), the same settings and children of the same
+	// sizes (for labels, the same texts and fonts): i.e. unless the layout
+	// passes would give the same results for both.
+	// Positions are read as last set through GuiBatch, as those of the
+	// prototype may still be queued.
+	boolean copyLayoutFrom(GuiLayout proto)
+	{
+		if (proto.getClass() != getClass() || proto.numOfChildren != numOfChildren
+				|| proto.dirty || proto.arrangedWidth == NO_SIZE
+				|| proto.flags != flags || proto.margin != margin || proto.padding != padding)
+			return false;
+		for (int i = 0; i < numOfChildren; i++)
+		{
+			GuiElement	element		= elements[i];
+			GuiElement	protoElem	= proto.elements[i];
+			if (element == null || protoElem == null)
+			{
+				if (element != protoElem)
+					return false;
+				continue;
+			}
+			if (element.getClass() != protoElem.getClass())
+				return false;
+			if (element instanceof GuiLayout)
+			{
+				if (!((GuiLayout)element).copyLayoutFrom((GuiLayout)protoElem))
+					return false;
+			}
+			else
+			{
+				RWGui.getElementSizes(element, sizes);
+				int	width	= sizes.x,	height	= sizes.y;
+				RWGui.getElementSizes(protoElem, sizes);
+				if (width != sizes.x || height != sizes.y)
+					return false;
+			}
+			GuiBatch.getPosition(protoElem, sizes);
+			GuiBatch.setPosition(element, sizes.x, sizes.y);
+		}
+		if (proto.elemWidths != null)
+		{
+			int	count	= Math.min(numOfChildren, proto.elemWidths.length);
+			allocSizes(count);
+			System.arraycopy(proto.elemWidths, 0, elemWidths, 0, count);
+			System.arraycopy(proto.elemHeights, 0, elemHeights, 0, count);
+		}
+		measuredWidth	= proto.measuredWidth;
+		measuredHeight	= proto.measuredHeight;
+		arrangedWidth	= proto.arrangedWidth;
+		arrangedHeight	= proto.arrangedHeight;
+		dirty			= false;
+		GuiShadow.setSize(this, (int)proto.getWidth(), (int)proto.getHeight());
+		return true;
+	}
+
+	// Marks the layout and all the layouts below it as changed, after a
+	// failed copyLayoutFrom() which may have left some of them copied.
+	void invalidateTree()
+	{
+		for (int i = 0; i < numOfChildren; i++)
+			if (elements[i] instanceof GuiLayout)
+				((GuiLayout)elements[i]).invalidateTree();
+		dirty			= true;
+		arrangedWidth	= NO_SIZE;
+	}
+
+	// Stores into out the natural size of a child: the measured size for a
+	// sub-layout (measuring it if needed), the current size for other elements.
+	Vector2i measureChild(GuiElement element, Vector2i out)
+	{
+		if (element instanceof GuiLayout)
+		{
+			GuiLayout	layout	= (GuiLayout)element;
+			layout.measureCached();
+			out.x	= layout.measuredWidth;
+			out.y	= layout.measuredHeight;
+			return out;
+		}
+		return RWGui.getElementSizes(element, out);
+	}
+
+	// Makes sure elemWidths and elemHeights can store the sizes of count children
+	void allocSizes(int count)
+	{
+		if (elemWidths == null || elemWidths.length < count)
+		{
+			elemWidths	= new int[count];
+			elemHeights	= new int[count];
+		}
+	}
+
+	// Returns the number of direct children, empty table cells included
+	int getChildCount()
+	{
+		return numOfChildren;
+	}
+
+	// Returns the index-th direct child (null for an empty table cell)
+	GuiElement getChild(int index)
+	{
+		return elements[index];
+	}
+
+	// Returns the index of element among the direct children or -1 if not found
+	int indexOfChild(GuiElement element)
+	{
+		if (element == null)
+			return -1;
+		for (int i = 0; i < numOfChildren; i++)
+			if (elements[i] == element)
+				return i;
+		return -1;
+	}
+
+	// Replaces the id and data associated with the index-th direct child
+	void setChildData(int index, Integer id, Object data)
+	{
+		if (elements[index] != null)
+		{
+			removeId(itemIndex, index);
+			if (id != null)
+				itemIndex.putId(id, elements[index]);
+		}
+		setIdData(index, id, data);
+	}
+
+	// Makes sure the child arrays can store count children
+	void ensureChildCapacity(int count)
+	{
+		if (elements == null)
+		{
+			elements	= new GuiElement[count];
+			ids			= new int[count];
+			hasIds		= new boolean[count];
+			datas		= new Object[count];
+		}
+		else if (elements.length < count)
+		{
+			elements	= Arrays.copyOf(elements, count);
+			ids			= Arrays.copyOf(ids, count);
+			hasIds		= Arrays.copyOf(hasIds, count);
+			datas		= Arrays.copyOf(datas, count);
+		}
+	}
+
+	// Stores a new child (possibly null, for an empty table cell) after the
+	// existing ones, without adding it to the base GuiPanel
+	void appendChild(GuiElement element, Integer id, Object data)
+	{
+		if (elements == null || numOfChildren == elements.length)
+			ensureChildCapacity(elements == null ? 4 : elements.length * 2);
+		elements[numOfChildren]	= element;
+		setIdData(numOfChildren, id, data);
+		if (element != null)
+		{
+			itemIndex.put(element, this, numOfChildren);
+			if (id != null)
+				itemIndex.putId(id, element);
+			if (element instanceof GuiLayout)
+				((GuiLayout)element).indexChildren(itemIndex, true);
+		}
+		numOfChildren++;
+		invalidate();
+	}
+
+	// Adds to (or removes from) index all the elements of the hierarchy
+	// below this layout, with their ids; when adding, the hierarchy starts using index.
+	// Layouts managing elements by themselves index them with a -1 position.
+	void indexChildren(ItemIndex index, boolean add)
+	{
+		if (add)
+			itemIndex	= index;
+		for (int i = 0; i < numOfChildren; i++)
+		{
+			GuiElement	element	= elements[i];
+			if (element == null)
+				continue;
+			if (add)
+			{
+				index.put(element, this, i);
+				if (hasIds[i])
+					index.putId(ids[i], element);
+			}
+			else
+			{
+				index.remove(element);
+				removeId(index, i);
+			}
+			if (element instanceof GuiLayout)
+				((GuiLayout)element).indexChildren(index, add);
+		}
+	}
+
+	// Returns the id and data pair associated with element anywhere in the
+	// hierarchy, looking it up in the index rather than scanning the children.
+	Pair<Integer,Object> findItemData(GuiElement element)
+	{
+		ItemIndex.Entry	entry	= itemIndex.get(element);
+		if (entry == null)
+			return null;
+		if (entry.index < 0)				// managed by the owner itself: ask it
+			return entry.owner.getItemData(element);
+		return entry.owner.getPair(entry.index);
+	}
+
+	// Returns the id associated with element anywhere in the hierarchy,
+	// looking it up in the index rather than scanning the children.
+	Integer findItemId(GuiElement element)
+	{
+		ItemIndex.Entry	entry	= itemIndex.get(element);
+		if (entry == null)
+			return null;
+		if (entry.index < 0)
+			return entry.owner.getItemId(element);
+		return entry.owner.getId(entry.index);
+	}
+
+	// Whether layout is this layout or one of the layouts below it.
+	private boolean isWithin(GuiLayout layout)
+	{
+		for (GuiElement e = layout; e instanceof GuiLayout; e = e.getParent())
+			if (e == this)
+				return true;
+		return false;
+	}
+
+	// Removes the id of the i-th direct child, if any, from index
+	private void removeId(ItemIndex index, int i)
+	{
+		if (hasIds[i] && elements[i] != null)
+			index.removeId(ids[i], elements[i]);
+	}
+
+	// Stores id and data of the i-th direct child
+	private void setIdData(int i, Integer id, Object data)
+	{
+		hasIds[i]	= id != null;
+		ids[i]		= id != null ? id : 0;
+		datas[i]	= data;
+	}
+
+	// Returns the id of the i-th direct child, boxed, or null if none
+	private Integer getId(int i)
+	{
+		return hasIds[i] ? Integer.valueOf(ids[i]) : null;
+	}
+
+	// Returns a new id/data pair for the i-th direct child; pairs are only
+	// built here, for the public API, and never stored
+	private Pair<Integer,Object> getPair(int i)
 	{
-		
+		return new Pair<>(getId(i), datas[i]);
 	}
 
 	// Adds / Removes elements directly to the base GuiPanel, bypassing layout
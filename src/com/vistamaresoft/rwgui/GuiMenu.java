@@ -12,7 +12,6 @@
 
 package com.vistamaresoft.rwgui;
 
-import com.vistamaresoft.rwgui.RWGui.Pair;
 import com.vistamaresoft.rwgui.RWGui.RWGuiCallback;
 import net.risingworld.api.Plugin;
 import net.risingworld.api.gui.GuiElement;
@@ -46,12 +45,12 @@ import net.risingworld.api.gui.GuiLabel;
  */
 public class GuiMenu extends GuiModalWindow
 {
-	private static final	int		MAX_NUM_OF_ITEMS= 12;
+	static final			int		MAX_NUM_OF_ITEMS= 12;
 
 	/**
 	 * Creates a new GuiMenu.
 	 * @param	plugin		the plug-in the GuiMenu is intended for. This
-	 *						is only needed to manage the internal event listener
+	 *						is currently not used by the window
 	 *						and has no effects on the plug-in itself.
 	 * @param	titleText	the text of the title.
 	 * @param	callback	the callback object to which to report events. Can
@@ -71,7 +70,7 @@ public class GuiMenu extends GuiModalWindow
 	/**
 	 * Creates a new GuiMenu with autoClose enabled.
 	 * @param	plugin		the plug-in the GuiMenu is intended for. This
-	 *						is only needed to manage the internal event listener
+	 *						is currently not used by the window
 	 *						and has no effects on the plug-in itself.
 	 * @param	titleText	the text of the title.
 	 * @param	callback	the callback object to which to report events. Can
@@ -117,7 +116,7 @@ public class GuiMenu extends GuiModalWindow
 	public int addItem(String text, Integer id, Object data)
 	{
 		addChild(text, id, data);
-		return ((GuiVerticalLayout)layout).children.size() - 1;
+		return layout.getChildCount() - 1;
 	}
 
 	/**
@@ -152,15 +151,14 @@ public class GuiMenu extends GuiModalWindow
 	 */
 	public int removeChild(String itemText)
 	{
-		for (Pair<GuiElement, Pair<Integer, Object>> item : layout.children)
+		for (int i = 0; i < layout.getChildCount(); i++)
 		{
-			GuiElement	element	= item.getL();
-			if ( ((GuiLabel)element).getText().equals(itemText))
+			GuiElement	element	= layout.getChild(i);
+			// sub-classes (GuiUsersMenu) may have children which are not items
+			if (element instanceof GuiLabel && ((GuiLabel)element).getText().equals(itemText))
 			{
-				int itemIndex	= layout.children.indexOf(item);
-				if (itemIndex != -1)
-					removeChild(element);
-				return itemIndex;
+				removeChild(element);
+				return i;
 			}
 		}
 		return RWGui.ERR_ITEM_NOT_FOUND;
@@ -13,7 +13,6 @@
 package com.vistamaresoft.rwgui;
 
 import net.risingworld.api.Plugin;
-import net.risingworld.api.events.EventMethod;
 import net.risingworld.api.events.player.gui.PlayerGuiElementClickEvent;
 import net.risingworld.api.gui.GuiLabel;
 import net.risingworld.api.objects.Player;
@@ -21,8 +20,8 @@ import net.risingworld.api.objects.Player;
 /**
  * Implements a modal message box. Each message box is made of a title bar,
  * with a title and a close button, and a number of text lines.
- * <p>The message box manages its own event Listener; it also turns the mouse
- * cursor on on display and off on hiding.
+ * <p>The message box receives its events from the RWGui plug-in; it also
+ * turns the mouse cursor on on display and off on hiding.
  * <p>GuiMessageBox inherits all GuiModalWindow behaviours.
  * <p>This message box is practically "fire-and-forget": once it is shown, the
  * player can only read it and then click on the close button to dismiss it.
@@ -36,7 +35,7 @@ import net.risingworld.api.objects.Player;
  */
 public class GuiMessageBox extends GuiModalWindow	//GuiPanel implements Listener
 {
-	private	MBThread	mbThread;
+	private	TimerWheel.Timeout	closeTimeout;
 
 	/**
 	 * Creates a new GuiMessageBox.
@@ -47,14 +46,15 @@ public class GuiMessageBox extends GuiModalWindow	//GuiPanel implements Listener
 	 * separate strings of convenient length, to avoid the message having an
 	 * excessive width.
 	 * @param	plugin	the plug-in the GuiMessageBox is intended for. This
-	 * 					is only needed to manage the internal event listener
+	 * 					is currently not used by the window
 	 * 					and has no effects on the plug-in itself.
 	 * @param	player	the player to show the message box to.
 	 * @param	title	the text of the title.
 	 * @param	texts	an array of String's with the text to display.
 	 * @param	delay	a timed duration of the message box in seconds; once
 	 * 					this time elapses, the message box closes down
-	 * 					automatically. Use 0 for a non-closing box.
+	 * 					automatically, if still shown to player. Use 0 for
+	 * 					a non-closing box.
 	 */
 	public GuiMessageBox(Plugin plugin, Player player, String title, String[] texts, int delay)
 	{
@@ -65,8 +65,13 @@ public class GuiMessageBox extends GuiModalWindow	//GuiPanel implements Listener
 		}
 		if (delay > 0)
 		{
-			mbThread	= new MBThread(this, player, delay);
-			mbThread.start();
+			closeTimeout	= TimerWheel.schedule(delay * 1000L, () ->
+				{
+					// the box may have been closed meanwhile without cancelling
+					// the timeout, for instance on player disconnection
+					if (WindowRouter.contains(player, this))
+						pop(player);
+				});
 		}
 	}
 
@@ -74,7 +79,7 @@ public class GuiMessageBox extends GuiModalWindow	//GuiPanel implements Listener
 	 * Overloaded constructor; similar to other constructor, but accepts a single
 	 * line of text as contents.
 	 * @param	plugin	the plug-in the GuiMessageBox is intended for. This
-	 * 					is only needed to manage the internal event listener
+	 * 					is currently not used by the window
 	 * 					and has no effects on the plug-in itself.
 	 * @param	player	the player to show the message box to.
 	 * @param	title	the text of the title.
@@ -92,42 +97,26 @@ public class GuiMessageBox extends GuiModalWindow	//GuiPanel implements Listener
 	 *
 	 * @param event
 	 */
-	@EventMethod
 	@Override
 	public void onClick(PlayerGuiElementClickEvent event)
 	{
 		if (titleBar.isCancelButton(event.getGuiElement()))
-		{
-			if (mbThread != null)
-				mbThread.interrupt();
 			pop(event.getPlayer());
-		}
 	}
 
-	private static class MBThread extends Thread
+	/**
+	 * Closes the message box, cancelling its timed closing, if any; pop()
+	 * and poppush() close the box too.
+	 * @param	player	the player from whose screen to remove the box.
+	 */
+	@Override
+	public void close(Player player)
 	{
-		private final	int				delaySecs;
-		private final	GuiMessageBox	messageBox;
-		private final	Player			player;
-
-		public MBThread(GuiMessageBox messageBox, Player player, int delaySecs)
-		{
-			this.delaySecs	= delaySecs;
-			this.messageBox	= messageBox;
-			this.player		= player;
-		}
-
-		@Override
-		public void run()
+		if (closeTimeout != null)
 		{
-			try
-			{
-				sleep(delaySecs * 1000);
-			} catch (InterruptedException e)
-			{
-				return;
-			}
-			messageBox.pop(player);
+			closeTimeout.cancel();
+			closeTimeout	= null;
 		}
+		super.close(player);
 	}
 }
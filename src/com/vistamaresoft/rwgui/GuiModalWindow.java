@@ -12,10 +12,10 @@
 
 package com.vistamaresoft.rwgui;
 
+import java.util.function.ObjIntConsumer;
 import com.vistamaresoft.rwgui.RWGui.Pair;
 import com.vistamaresoft.rwgui.RWGui.RWGuiCallback;
 import net.risingworld.api.Plugin;
-import net.risingworld.api.events.EventMethod;
 import net.risingworld.api.events.Listener;
 import net.risingworld.api.events.player.gui.PlayerGuiElementClickEvent;
 import net.risingworld.api.events.player.gui.PlayerGuiInputEvent;
@@ -24,6 +24,7 @@ import net.risingworld.api.gui.GuiPanel;
 import net.risingworld.api.gui.GuiTextField;
 import net.risingworld.api.gui.PivotPosition;
 import net.risingworld.api.objects.Player;
+import net.risingworld.api.utils.Vector2i;
 
 /**
  * A class implementing the concept of a modal window, i.e. of a window with
@@ -37,8 +38,12 @@ import net.risingworld.api.objects.Player;
  * The main panel is one of the GuiLayout subclasses, with its specific arrangement
  * of children, according to the layoutType of the constructor. To the panel,
  * standard GuiElement's can be added with addChild().
- * <p>GuiModalWindow manages its own event Listener; it also turns the mouse
- * cursor on on display and off on hiding.
+ * <p>GuiModalWindow receives its events from the RWGui plug-in, which routes
+ * each event only to the window owning the element it is about; it also turns
+ * the mouse cursor on on display and off on hiding. The window no longer
+ * registers itself as an event listener: it still is a Listener, so that
+ * existing code passing it to registerEventListener() keeps compiling, but
+ * its event methods are not annotated and doing so has no effect.
  * <p>GuiModalWindow manages the close button in the title bar, hiding the box
  * from the player screen and turning off the mouse cursor. The callback object
  * is notified of a close event by passing an id parameter with a value of
@@ -56,6 +61,11 @@ import net.risingworld.api.objects.Player;
  * <p>This class implements a 'display stack' of modal windows: 'pushing' a new
  * window with the push() method displays the new window and 'popping' it,
  * with the pop() method, restores the window previously displayed. 
+ * Each player has a stack of its own; the top window of a player is the
+ * first to be offered the events originated by the player.
+ * <p>Windows shall only be changed on the GUI thread (see GuiExecutor);
+ * show(), close(), push(), pop() and poppush() can be called from any thread,
+ * as they post themselves to the GUI thread when needed.
  * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
  * <b>this class cannot instantiated or used in any way</b> from within the onEnable()
  * method of a plug-in, as it is impossible to be sure that, at that moment,
@@ -69,15 +79,38 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	protected	boolean			autoClose;
 	protected	RWGuiCallback	callback;
 	protected	GuiLayout		layout;
+	/**
+	 * @deprecated	the window is no longer registered as an event listener
+	 *				and this count is no longer kept: it is always 0.
+	 */
+	@Deprecated
 	protected	int				listenerRef;
+	/**
+	 * @deprecated	the 'display stack' is now kept by RWGui for each player:
+	 *				this field is only set, on show(), to the window below
+	 *				this window in the stack of the player and cleared on
+	 *				close(), for the sub-classes reading it; changing it has
+	 *				no effect.
+	 */
+	@Deprecated
 	protected	GuiModalWindow	prevWindow;
 	protected	Plugin			plugin;
 	protected	GuiTitleBar		titleBar;
+	// the title bar width the window was last laid out for; -1 if never laid out
+	private		int				laidOutTitleWidth	= -1;
+	// whether the window stays on the player screen, hidden, while covered
+	private		boolean			retained			= false;
+	// whether the window is covered and has been left on the screen, invisible
+	private		boolean			coveredRetained		= false;
+	// whether the layout has been copied from a template prototype and not displayed yet
+	private		boolean			layoutCopied		= false;
+	// the key of the window in GuiWindowCache, if obtained from it; null if not
+				GuiWindowCache.Key	cacheKey;
 
 	/**
 	 * Creates a new GuiModalWindow.
 	 * @param	plugin		the plug-in the GuiModalWindow is intended for. This
-	 * 						is only needed to manage the internal event listener
+	 * 						is currently not used by the window
 	 * 						and has no effects on the plug-in itself.
 	 * @param	title		the text of the title.
 	 * @param	layoutType	the type of the layout (one of the RWGui.LAYOUT_HORIZ
@@ -102,21 +135,23 @@ public class GuiModalWindow extends GuiPanel implements Listener
 		else
 			layout		= new GuiVerticalLayout(RWGui.LAYOUT_V_TOP & RWGui.LAYOUT_H_LEFT);
 		layout.setMargin(RWGui.DEFAULT_PADDING);
-		layout.setPivot(PivotPosition.BottomLeft);
-		layout.setPosition(/*RWGui.DEFAULT_PADDING, RWGui.DEFAULT_PADDING*/0, 0, false);
+		GuiShadow.setPivot(layout, PivotPosition.BottomLeft);
+		GuiBatch.setPosition(layout, /*RWGui.DEFAULT_PADDING, RWGui.DEFAULT_PADDING*/0, 0);
 		super.addChild(layout);
 		// we can't directly add the title bar, as this.addChild()
 		// is overridden to add to the layout
 		titleBar		= new GuiTitleBar(null, title, true);
 		super.addChild(titleBar);
-		listenerRef		= 0;
 	}
 
 	//********************
 	// EVENTS
 	//********************
 
-	@EventMethod
+	/**
+	 * Called by the RWGui plug-in for the clicks on the elements of this window.
+	 * @param	event	the click event.
+	 */
 	public void onClick(PlayerGuiElementClickEvent event)
 	{
 		if (callback == null)
@@ -133,7 +168,7 @@ public class GuiModalWindow extends GuiPanel implements Listener
 		// on other click events, notify the caller.
 		// GuiTextField's are treated differently, as a click on them is only
 		// reported with an id, without any data.
-		Pair<Integer,Object>	data	= layout.getItemData(element);
+		Pair<Integer,Object>	data	= layout.findItemData(element);
 		if (data != null)
 		{
 			int	id	= data.getL();
@@ -146,13 +181,17 @@ public class GuiModalWindow extends GuiPanel implements Listener
 		}
 	}
 
-	@EventMethod
+	/**
+	 * Called by the RWGui plug-in for the text entered in the text fields of
+	 * this window.
+	 * @param	event	the text entry event.
+	 */
 	public void onTextEntry(PlayerGuiInputEvent event)
 	{
 		if (callback == null)
 			return;
 		Integer	id;
-		if ( (id=layout.getItemId(event.getGuiElement())) != null)
+		if ( (id=layout.findItemId(event.getGuiElement())) != null)
 		{
 			callback.onCall(event.getPlayer(), id, event.getInput());
 		}
@@ -185,30 +224,73 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	 */
 	public void setPadding(int value)	{ layout.setPadding(value);	}
 
+	/**
+	 * Sets whether the window stays on the player screen while covered by
+	 * another window pushed over it or it is removed from it (the default).
+	 * <p>A retained window is only made invisible while covered and visible
+	 * again when uncovered, which costs much less than removing all its
+	 * elements and adding them back. As the visibility of an element is the
+	 * same for all the players, only a window shown to a single player can
+	 * be retained: covering it for a player would hide it for all the other
+	 * players it is shown to.
+	 * <p>A retained window also keeps its layout from a display to the next:
+	 * after changing the contents of one of its children in a way which
+	 * affects its size (for instance, the text of a GuiLabel), invalidate()
+	 * must be called for the change to be laid out.
+	 * @param	value	true to retain the window while covered, false to
+	 *					remove it.
+	 */
+	public void setRetained(boolean value)	{ retained = value;	}
+
+	/**
+	 * Returns whether the window stays on the player screen while covered.
+	 * @return	true if the window is retained while covered, false if not.
+	 */
+	public boolean isRetained()				{ return retained;	}
+
 	/**
 	 * Lays the window out, arranging all the children of the layout
 	 * hierarchy.
 	 * 
 	 * This method is always called before showing the window to a player
-	 * and it is usually not necessary to call it manually.
+	 * and it is usually not necessary to call it manually. If the window did
+	 * not change since it was last laid out, the method does nothing; a
+	 * window which is not retained (see setRetained()) is instead always
+	 * laid out anew when displayed, as the contents of its children may
+	 * have changed meanwhile.
 	 */
 	public void layout()
 	{
 		int	tbw		= titleBar.getMinWidth();
+		if (!layout.dirty && tbw == laidOutTitleWidth)
+			return;
+		laidOutTitleWidth	= tbw;
 		layout.layout(tbw, 0);			// require the layout to be at least as wide as the title bar
 		int height	= (int)layout.getHeight();
 		int	width	= (int)layout.getWidth();
 		// place the layout inside any dlg box border
 		int	borderW	= (int)getBorderThickness();
-		layout.setPosition(borderW, borderW, false);
-		layout.setSize(width - borderW*2, height - borderW, false);
+		GuiBatch.setPosition(layout, borderW, borderW);
+		GuiShadow.setSize(layout, width - borderW*2, height - borderW);
 		// final size of the dialogue box
 		height		+= (int)titleBar.getHeight();
-		setSize(width, height, false);
+		GuiShadow.setSize(this, width, height);
 		// tell the title bar to re-position itself within the dialogue box
 		titleBar.relayout();
 	}
 
+	/**
+	 * Marks the window as changed, so that it is laid out again the next
+	 * time it is displayed.
+	 * <p>Adding or removing children already does this; this method is only
+	 * needed, for retained windows, after changing the contents of a child
+	 * in a way which affects its size (for instance, the text of a GuiLabel).
+	 */
+	public void invalidate()
+	{
+		layout.invalidate();
+	}
+
 	/**
 	 * Adds an inactive GuiElement (with no associated data) as a direct child
 	 * of the window. The element is positioned beside or below the last
@@ -278,19 +360,21 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	 */
 	public void show(Player player)
 	{
-		layout();
-		titleBar.addToPlayer(player);
-		layout.show(player);
-		listenerRef++;
-		if (listenerRef == 1)
-			plugin.registerEventListener(this);
-		player.addGuiElement(this);
-		player.setMouseCursorVisible(true);
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> show(player));
+			return;
+		}
+		GuiModalWindow	below	= WindowRouter.getTop(player);
+		if (below != this)
+			prevWindow	= below;
+		WindowRouter.push(player, this);
+		display(player);
 	}
 
 	/**
 	 * Closes (hides) the window from the player screen, turning the
-	 * mouse cursor off.
+	 * mouse cursor off, and removes it from the 'display stack' of the player.
 	 * 
 	 * <p>The window resources are <b>not freed</b> and the window can be
 	 * re-used if needed; when the window is no longer needed, its resources
@@ -301,12 +385,15 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	 */
 	public void close(Player player)
 	{
-		titleBar.removeFromPlayer(player);
-		layout.hide(player);
-		player.removeGuiElement(this);
-		listenerRef--;
-		if (listenerRef <= 0)
-			plugin.unregisterEventListener(this);
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> close(player));
+			return;
+		}
+		undisplay(player);
+		GuiBatch.flush(player);			// removed from the client before any free()
+		WindowRouter.remove(player, this);
+		prevWindow	= null;
 		player.setMouseCursorVisible(false);
 	}
 
@@ -316,58 +403,79 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	 * window, keeping the mouse cursor on.
 	 * <p>As the Rising World API does not have the concept of window or
 	 * of modality and any uncovered element of this window would remain
-	 * clickable, this window is hidden (but not freed or destroyed); popping
-	 * the new window away (with its pop() method) will show this window back
-	 * as it was at the push time.
+	 * clickable, this window is hidden (but not freed or destroyed): made
+	 * invisible if retained, removed from the player screen if not (see
+	 * setRetained()); popping the new window away (with its pop() method)
+	 * will show this window back as it was at the push time.
 	 * @param	player	the player on whose screen to display the new window.
 	 * @param	win		the new GuiModalWindow to display.
 	 */
 	public void push(Player player, GuiModalWindow win)
 	{
-		close(player);
-		win.prevWindow	= this;
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> push(player, win));
+			return;
+		}
+		cover(player);					// hidden, but still in the stack below win
 		win.show(player);
 	}
 
 	/**
 	 * Pops this window away from the 'display stack'.
-	 * <p>This window is closed down and freed and the window (if any) which
-	 * pushed it will be shown back at the state it had at the push time.
-	 * <p>If this window was not pushed, nothing will be displayed and the
+	 * <p>This window is closed down and freed and, if it was the top window
+	 * of the player, the window (if any) below it in the stack will be shown
+	 * back at the state it had at the push time.
+	 * <p>The window below is shown back also if this window was displayed
+	 * over it with show() rather than with push(): the stack holds all the
+	 * windows shown to the player. Formerly, only a window pushed over
+	 * another made it reappear when popped.
+	 * <p>If the stack is left empty, nothing will be displayed and the
 	 * mouse cursor will be turned off.
 	 * <p>After using this method, the window is no longer functional: none of
 	 * its methods can be used and the window cannot be shown again or used in
-	 * any way.
+	 * any way; unless the window was obtained from GuiWindowCache, in which
+	 * case it is returned to the cache rather than freed.
 	 * @param	player	the player from whose screen to pop this window.
 	 */
 	public void pop(Player player)
 	{
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> pop(player));
+			return;
+		}
+		boolean	wasTop	= WindowRouter.getTop(player) == this;
 		close(player);
-		free();
-		if (prevWindow != null)
+		freeOrCache();
+		GuiModalWindow	top	= WindowRouter.getTop(player);
+		if (top != null)
 		{
-			prevWindow.show(player);
+			if (wasTop)
+				top.uncover(player);
 			player.setMouseCursorVisible(true);
 		}
-		else
-			player.setMouseCursorVisible(false);
 	}
 
 	/**
 	 * Combines pop() and push(), removing (and destroying) this window and
 	 * pushing win <i>in its place</i>.
-	 * <p>The new window will become the 'next window'  
+	 * <p>The window which was below this window in the stack will be below win.
+	 * <p>As with pop(), this window is returned to GuiWindowCache rather than
+	 * freed, if obtained from it.
 	 * @param	player	the player on whose screen to display the new window.
 	 * @param	win		the new GuiModalWindow to display.
 	 */
 	public void poppush(Player player, GuiModalWindow win)
 	{
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> poppush(player, win));
+			return;
+		}
 		close(player);
-		free();
-		if (prevWindow != null)
-			prevWindow.prevWindow	= win;
+		freeOrCache();
 		win.show(player);
-		player.setMouseCursorVisible(true);
 	}
 
 	/**
@@ -379,7 +487,144 @@ public class GuiModalWindow extends GuiPanel implements Listener
 	 */
 	public Integer getItemId(GuiElement element)
 	{
-		return layout.getItemId(element);
+		return layout.findItemId(element);
+	}
+
+	/**
+	 * Returns the child of the window with the given id, at any level of
+	 * the window hierarchy, or null if none.
+	 * @param	id	the id to look for.
+	 * @return	the child GuiElement with the given id or null if none is found.
+	 */
+	public GuiElement getChildFromId(int id)
+	{
+		return layout.getChildFromId(id);
+	}
+
+	/**
+	 * Looks up the children of the window with the given ids and passes each
+	 * of them, with its id, to updater. See GuiLayout.updateChildren() for
+	 * details.
+	 * @param	ids		the ids of the children to update
+	 * @param	updater	the function updating each child
+	 * @return	the number of children found and updated.
+	 */
+	public int updateChildren(int[] ids, ObjIntConsumer<GuiElement> updater)
+	{
+		return layout.updateChildren(ids, updater);
+	}
+
+	// Lays the window out and adds it to the player screen, without
+	// touching the 'display stack'.
+	void display(Player player)
+	{
+		// GuiLabel.setText() and the like cannot be tracked: unless retained,
+		// lay the window out anew, but for a layout just copied and checked
+		if (!retained && !layoutCopied)
+			layout.invalidateTree();
+		layoutCopied	= false;
+		layout();
+		titleBar.addToPlayer(player);
+		layout.show(player);
+		GuiBatch.add(player, this);
+		setWindowVisible(true);
+		coveredRetained	= false;
+		player.setMouseCursorVisible(true);
+	}
+
+	// Hides the window from the player screen, when another window is pushed
+	// over it: a retained window stays on the screen, invisible.
+	void cover(Player player)
+	{
+		if (retained)
+		{
+			setWindowVisible(false);
+			coveredRetained	= true;
+		}
+		else
+			undisplay(player);
+	}
+
+	// Shows the window back, once the window covering it has been popped
+	// away: a retained window which did not change meanwhile only needs to
+	// be made visible again, any other window is displayed anew.
+	void uncover(Player player)
+	{
+		if (coveredRetained && !layout.dirty && titleBar.getMinWidth() == laidOutTitleWidth)
+		{
+			setWindowVisible(true);
+			coveredRetained	= false;
+			player.setMouseCursorVisible(true);
+		}
+		else
+			display(player);
+	}
+
+	// Removes the window from the player screen, without touching the
+	// 'display stack' or the mouse cursor.
+	void undisplay(Player player)
+	{
+		titleBar.removeFromPlayer(player);
+		layout.hide(player);
+		GuiBatch.remove(player, this);
+	}
+
+	// Copies the geometry of proto, built by the same definition and laid
+	// out already, instead of laying the window out; returns false, leaving
+	// the window to be laid out normally at display time, if the hierarchies
+	// of the two windows differ.
+	boolean copyLayoutFrom(GuiModalWindow proto)
+	{
+		if (layout == null || proto.layout == null || proto.laidOutTitleWidth < 0
+				|| titleBar.getMinWidth() != proto.laidOutTitleWidth
+				|| !layout.copyLayoutFrom(proto.layout))
+		{
+			if (layout != null)
+			{
+				layout.invalidateTree();	// sub-layouts may have been copied before the failure
+				layout.invalidate();
+			}
+			return false;
+		}
+		Vector2i	position	= GuiBatch.getPosition(proto.layout, new Vector2i());
+		GuiBatch.setPosition(layout, position.x, position.y);
+		GuiShadow.setSize(this, (int)proto.getWidth(), (int)proto.getHeight());
+		titleBar.relayout();
+		laidOutTitleWidth	= proto.laidOutTitleWidth;
+		layoutCopied		= true;
+		return true;
+	}
+
+	// Frees the window once popped away, or returns it to the window cache
+	// if it came from there.
+	private void freeOrCache()
+	{
+		if (cacheKey != null)
+			GuiWindowCache.release(this);
+		else
+			free();
+	}
+
+	// Toggles the visibility of the window as a whole: root, title bar and layout.
+	private void setWindowVisible(boolean visible)
+	{
+		GuiBatch.setVisible(this, visible);
+		GuiBatch.setVisible(titleBar, visible);
+		GuiBatch.setVisible(layout, visible);
+	}
+
+	// Whether the window is covered and kept on the screen, invisible.
+	boolean isCoveredRetained()
+	{
+		return coveredRetained;
+	}
+
+	// Whether element is one of the elements of the window the player can
+	// interact with: the close button or any element of the layout hierarchy.
+	boolean ownsElement(GuiElement element)
+	{
+		return (titleBar != null && titleBar.isCancelButton(element))
+				|| (layout != null && layout.itemIndex.get(element) != null);
 	}
 
 	/**
@@ -81,7 +81,7 @@ public class GuiModelessWindow extends GuiPanel
 		setVisible(true);
 		titleBar	= new GuiTitleBar(this, titleText, false);
 		titleBar.addToPlayer(player);
-		player.addGuiElement(this);
+		GuiBatch.add(player, this);
 		if (texts != null)
 			setTexts(texts);
 	}
@@ -94,16 +94,20 @@ public class GuiModelessWindow extends GuiPanel
 	 */
 	public void setTexts(List<String> texts)
 	{
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> setTexts(texts));
+			return;
+		}
 		int		numOfTexts	= texts.size();
 		// compute height from number of text lines
 		int		panelHeight	= RWGui.TITLE_SIZE + RWGui.ITEM_SIZE*texts.size() +
 				RWGui.DEFAULT_PADDING*(texts.size()+3);
 		// compute width from number of chars in title and in text lines
-		int		panelWidth	= (int)(RWGui.AVG_CHAR_WIDTH1 * titleBar.getTitleText().length() *
-				RWGui.TITLE_SIZE);
+		int		panelWidth	= (int)RWGui.getTextWidth(titleBar.getTitleText(), RWGui.TITLE_SIZE);
 		int		textWidth;
 		for (int i = 0; i < numOfTexts; i++)
-			if ( (textWidth = (int)(RWGui.AVG_CHAR_WIDTH1 * texts.get(i).length() * RWGui.ITEM_SIZE)) > panelWidth)
+			if ( (textWidth = (int)RWGui.getTextWidth(texts.get(i), RWGui.ITEM_SIZE)) > panelWidth)
 				panelWidth = textWidth;
 		panelWidth	+= 2 * RWGui.DEFAULT_PADDING;
 		// Panel size are known: compute position of each item
@@ -122,7 +126,7 @@ public class GuiModelessWindow extends GuiPanel
 			labels[i].setFontSize(RWGui.ITEM_SIZE);
 			labels[i].setClickable(false);
 			addChild(labels[i]);
-			player.addGuiElement(labels[i]);
+			GuiBatch.add(player, labels[i]);
 			yPos		-= RWGui.DEFAULT_PADDING + RWGui.ITEM_SIZE;
 		}
 	}
@@ -134,11 +138,17 @@ public class GuiModelessWindow extends GuiPanel
 	 */
 	public void free()
 	{
+		if (!GuiExecutor.isGuiThread())
+		{
+			GuiExecutor.post(() -> free());
+			return;
+		}
 		titleBar.removeFromPlayer(player);
+		GuiBatch.remove(player, this);
+		releaseTexts();
+		GuiBatch.flush(player);			// removed from the client before detached
 		titleBar.free();
 		titleBar	= null;
-		player.removeGuiElement(this);
-		releaseTexts();
 	}
 
 	private void releaseTexts()
@@ -146,9 +156,12 @@ public class GuiModelessWindow extends GuiPanel
 		if (labels != null)
 		{
 			int		numOfTexts	= labels.length;
+			for (int i = 0; i < numOfTexts; i++)
+				GuiBatch.remove(player, labels[i]);
+			// the labels leave the player screen before being detached
+			GuiBatch.flush(player);
 			for (int i = 0; i < numOfTexts; i++)
 			{
-				player.removeGuiElement(labels[i]);
 				removeChild(labels[i]);
 				labels[i]	= null;
 			}
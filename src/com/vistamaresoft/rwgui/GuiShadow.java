@@ -0,0 +1,151 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiShadow.java - Remembers the last properties set into GUI elements to
+		skip writes which would not change anything.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import net.risingworld.api.gui.GuiElement;
+import net.risingworld.api.gui.GuiImage;
+import net.risingworld.api.gui.GuiLabel;
+import net.risingworld.api.gui.GuiPanel;
+import net.risingworld.api.gui.GuiTextField;
+import net.risingworld.api.gui.PivotPosition;
+
+/**
+ * The 'shadow state' of the GUI elements managed by RWGui.
+ * <p>Each setter remembers the value last applied to an element through it
+ * and does not call the element again with the same value, as each call
+ * may cost a sync with the player client.
+ * <p>A value set directly into the element is not known to the shadow state:
+ * the first write of each property through the shadow state is therefore
+ * always applied, but later direct writes would be masked by it. Once an
+ * element is set through the shadow state, all the writes to the properties
+ * above shall go through it, while the element is managed by RWGui; elements
+ * removed from a layout are forgotten, so that the shadow state does not get
+ * in the way of code managing them directly afterwards.
+ * <p>Position and visibility are only set here by GuiBatch, when flushing:
+ * the rest of RWGui writes them through GuiBatch.
+ * <p>The visibility is the exception: as it is also known to the element
+ * itself, it is compared with the actual state of the element and never
+ * masks direct writes.
+ * <p>Elements are weakly referenced, so they are not kept alive by the
+ * shadow state once discarded. All the methods are thread-safe.
+ */
+final class GuiShadow
+{
+	//
+	// FIELDS
+	//
+	private static final	Map<GuiElement,State>	states	= new WeakHashMap<>();
+
+	private GuiShadow()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/** Sets the position of element (in pixels), unless it is already there. */
+	static synchronized void setPosition(GuiElement element, int x, int y)
+	{
+		State	state	= getState(element);
+		if (state.hasPosition && state.x == x && state.y == y)
+			return;
+		element.setPosition(x, y, false);
+		state.hasPosition	= true;
+		state.x				= x;
+		state.y				= y;
+	}
+
+	/** Sets the size of element (in pixels), unless it already has it. */
+	static synchronized void setSize(GuiElement element, int width, int height)
+	{
+		State	state	= getState(element);
+		if (state.hasSize && state.width == width && state.height == height)
+			return;
+		element.setSize(width, height, false);
+		state.hasSize	= true;
+		state.width		= width;
+		state.height	= height;
+	}
+
+	/** Sets the visibility of element, unless it is already so. */
+	static void setVisible(GuiElement element, boolean visible)
+	{
+		if (element.isVisible() != visible)
+			element.setVisible(visible);
+	}
+
+	/** Sets the pivot of element, unless it already has it. */
+	static synchronized void setPivot(GuiElement element, PivotPosition pivot)
+	{
+		State	state	= getState(element);
+		if (state.pivot == pivot)
+			return;
+		element.setPivot(pivot);
+		state.pivot	= pivot;
+	}
+
+	/**
+	 * Sets whether element is clickable, unless it is already so; elements
+	 * of types which cannot be clickable are ignored.
+	 */
+	static synchronized void setClickable(GuiElement element, boolean clickable)
+	{
+		State	state	= getState(element);
+		int		value	= clickable ? 1 : 0;
+		if (state.clickable == value)
+			return;
+		if (element instanceof GuiImage)
+			((GuiImage)element).setClickable(clickable);
+		else if (element instanceof GuiLabel)
+			((GuiLabel)element).setClickable(clickable);
+		else if (element instanceof GuiPanel)
+			((GuiPanel)element).setClickable(clickable);
+		else if (element instanceof GuiTextField)
+			((GuiTextField)element).setClickable(clickable);
+		else
+			return;
+		state.clickable	= value;
+	}
+
+	/** Forgets everything about element. */
+	static synchronized void forget(GuiElement element)
+	{
+		states.remove(element);
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private static State getState(GuiElement element)
+	{
+		State	state	= states.get(element);
+		if (state == null)
+		{
+			state	= new State();
+			states.put(element, state);
+		}
+		return state;
+	}
+
+	private static final class State
+	{
+		boolean			hasPosition	= false;
+		int				x, y;
+		boolean			hasSize		= false;
+		int				width, height;
+		int				clickable	= -1;		// -1 = unknown, 0 = not clickable, 1 = clickable
+		PivotPosition	pivot		= null;
+	}
+}
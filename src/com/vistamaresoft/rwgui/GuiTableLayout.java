@@ -1,10 +1,8 @@
 package com.vistamaresoft.rwgui;
 
-import java.util.ArrayList;
-import com.vistamaresoft.rwgui.RWGui.Pair;
+import java.util.Arrays;
 import net.risingworld.api.gui.GuiElement;
 import net.risingworld.api.gui.PivotPosition;
-import net.risingworld.api.utils.Vector2i;
 
 /**
 	A class implementing an automatic table layout in which children GuiElement's
@@ -40,6 +38,7 @@ public class GuiTableLayout extends GuiLayout
 {
 	private final int maxNumOfCols, maxNumOfRows;
 	private final int[] colFlags, rowFlags;
+	private final int[] colWidths, rowHeights;	// scratch storage for layout passes
 
 	/**
 	 * Creates a new table layout with up to maxNumOfCol columns and up to
@@ -60,6 +59,10 @@ public class GuiTableLayout extends GuiLayout
 		rowFlags	= new int[maxNumOfRows];
 		for (int i = 0; i < maxNumOfRows; i++)
 			rowFlags[i]	= RWGui.LAYOUT_V_MIDDLE;
+		colWidths	= new int[maxNumOfCols];
+		rowHeights	= new int[maxNumOfRows];
+		allocSizes(maxNumOfCols * maxNumOfRows);
+		ensureChildCapacity(maxNumOfCols * maxNumOfRows);
 	}
 
 	/**
@@ -75,10 +78,11 @@ public class GuiTableLayout extends GuiLayout
 		if (idx >= 0 && idx < maxNumOfCols)
 		{
 			colFlags[idx]	= flag;
-			if ( (flag & RWGui.LAYOUT_H_RIGHT) != 0 && children != null)
-				for (int i = idx; i < children.size(); i += maxNumOfCols)
-					if (children.get(i) != null)
-						children.get(i).getL().setPivot(PivotPosition.TopRight);
+			if ( (flag & RWGui.LAYOUT_H_RIGHT) != 0)
+				for (int i = idx; i < numOfChildren; i += maxNumOfCols)
+					if (elements[i] != null)
+						GuiShadow.setPivot(elements[i], PivotPosition.TopRight);
+			invalidate();
 		}
 	}
 
@@ -93,7 +97,10 @@ public class GuiTableLayout extends GuiLayout
 	public void setRowFlag(int idx, int flag)
 	{
 		if (idx >= 0 && idx < maxNumOfRows)
+		{
 			rowFlags[idx]	= flag;
+			invalidate();
+		}
 	}
 
 	/**
@@ -103,95 +110,59 @@ public class GuiTableLayout extends GuiLayout
 	@Override
 	public void addChild(GuiElement element, Integer id, Object data)
 	{
-		if (children == null)
-			children	= new ArrayList<>(maxNumOfCols * maxNumOfRows);
-		if (children.size() < maxNumOfCols * maxNumOfRows)
+		if (numOfChildren < maxNumOfCols * maxNumOfRows)
 		{
 			if (element == null)
-				children.add(null);
+				appendChild(null, null, null);
 			else
 			{
-				int	col	= children.size() % maxNumOfCols;
+				int	col	= numOfChildren % maxNumOfCols;
 				super.addChild(element, id, data);
 				// if new child belongs to a column with RIGHT flag,
 				// set TopRight pivot position
 				if ( (colFlags[col] & RWGui.LAYOUT_H_RIGHT) != 0)
-					element.setPivot(PivotPosition.TopRight);
+					GuiShadow.setPivot(element, PivotPosition.TopRight);
 			}
 		}
 	}
 
 	/**
-		Arranges child elements in a table made of rows and columns
-
-		As this method lays its children out recursively, it is usually
-		necessary to call this method manually only for the top layout of a
-		layout hierarchy.
+		Measures the natural size of the table: the width of each column and
+		the height of each row are those of the widest and of the tallest of
+		their cells.
 	 */
 	@Override
-	void layout(int minWidth, int minHeight, boolean reset)
+	void measure()
 	{
-		if (children == null || children.isEmpty())
-			return;
-		Vector2i[]	elemSizes	= new Vector2i[maxNumOfCols * maxNumOfRows];
-		int			col, row;
-		int			count;
-		int[]		colWidths	= new int[maxNumOfCols];
-		int[]		rowHeights	= new int[maxNumOfRows];
-		int			height	= 0;
-		int			width	= 0;
-		if (reset)
-		{
-			minHeight	= height	= 0;
-			minWidth	= width		= 0;
-		}
-		else
+		if (numOfChildren == 0)
 		{
-			count	= 0;
-			for (Pair<GuiElement,?> item : children)
-			{
-				if (item != null)
-				{
-					elemSizes[count]	= RWGui.getElementSizes(item.getL());
-					col		= count % maxNumOfCols;
-					row		= count / maxNumOfCols;
-					if (colWidths[col] < elemSizes[count].x)
-						colWidths[col]	= elemSizes[count].x;
-					if (rowHeights[row] < elemSizes[count].y)
-						rowHeights[row]	= elemSizes[count].y;
-				}
-				count++;
-				// do not enumerate beyond the max expected number of cells
-				if (count >= maxNumOfCols * maxNumOfRows)
-					break;
-			}
-			count++;
+			measuredWidth	= measuredHeight	= 0;
+			return;
 		}
-
-		count		= 0;
+		int			numOfCells	= Math.min(numOfChildren, maxNumOfCols * maxNumOfRows);
+		Arrays.fill(colWidths, 0);
+		Arrays.fill(rowHeights, 0);
 		// scan all table cells to collect cell sizes and max col width / row height
-		for (Pair<GuiElement,?> item : children)
+		for (int count = 0; count < numOfCells; count++)
 		{
-			if (item != null)
+			GuiElement	element			= elements[count];
+			if (element != null)
 			{
-				GuiElement	element			= item.getL();
-				col		= count % maxNumOfCols;
-				row		= count / maxNumOfCols;
-				if (element instanceof GuiLayout)
-					((GuiLayout)element).layout(colWidths[col], rowHeights[row], reset);
-				elemSizes[count]	= RWGui.getElementSizes(element);
-				if (colWidths[col] < elemSizes[count].x)
-					colWidths[col]	= elemSizes[count].x;
-				if (rowHeights[row] < elemSizes[count].y)
-					rowHeights[row]	= elemSizes[count].y;
+				int		col		= count % maxNumOfCols;
+				int		row		= count / maxNumOfCols;
+				measureChild(element, sizes);
+				elemWidths[count]	= sizes.x;
+				elemHeights[count]	= sizes.y;
+				if (colWidths[col] < sizes.x)
+					colWidths[col]	= sizes.x;
+				if (rowHeights[row] < sizes.y)
+					rowHeights[row]	= sizes.y;
 			}
-			count++;
-			// do not enumerate beyond the max expected number of cells
-			if (count >= maxNumOfCols * maxNumOfRows)
-				break;
 		}
 
 		// compute (min) total table width and (min) total table height
+		int			height	= 0;
+		int			width	= 0;
 		for (int i = 0; i < maxNumOfCols; i++)
 		{
 			width	+= colWidths[i] + padding;
@@ -202,34 +173,58 @@ public class GuiTableLayout extends GuiLayout
 			height	+= rowHeights[i] + padding;
 		}
 		height	+= margin * 2 - padding;	// add top and bottom margin and discount last bottom padding
+		measuredWidth	= width;
+		measuredHeight	= height;
+	}
 
-		int		spacingH	= padding;
-		int		spacingW	= padding;
+	/**
+		Arranges child elements in a table made of rows and columns
 
-		// scan cells again to position each cell
-		count	= 0;
+		Sub-layouts are arranged as large as their cells. The table always
+		keeps its measured size.
+	 */
+	@Override
+	void arrange(int width, int height)
+	{
+		if (numOfChildren == 0)
+			return;
+		int			col, row;
+		int			numOfCells	= Math.min(numOfChildren, maxNumOfCols * maxNumOfRows);
+		int			spacingH	= padding;
+		int			spacingW	= padding;
+
+		// scan cells to position each cell
 		int		x			= margin;			// x and y point to the table top left corner
-		int		y			= height - margin;
-		for (Pair<GuiElement,?> item : children)
+		int		y			= measuredHeight - margin;
+		for (int count = 0; count < numOfCells; count++)
 		{
 			col		= count % maxNumOfCols;
 			row		= count / maxNumOfCols;
-			if (item != null)
+			GuiElement	element	= elements[count];
+			if (element != null)
 			{
+				if (element instanceof GuiLayout)
+				{
+					GuiLayout	layout	= (GuiLayout)element;
+					layout.arrangeCached(Math.max(colWidths[col], layout.measuredWidth),
+							Math.max(rowHeights[row], layout.measuredHeight));
+					RWGui.getElementSizes(element, sizes);
+					elemWidths[count]	= sizes.x;
+					elemHeights[count]	= sizes.y;
+				}
 				// position the next table cell
-				Vector2i	elementSizes	= elemSizes[count];
 				// if the COLUMN is right-aligned, its cells are expected to have
 				// PivotPosition.TopRight: position at right edge of column;
 				// if it is centre-aligned, position cell left edge to result centred in column;
 				// otherwise (left-aligned), position cell left edge at column left edge
 				int	elX	= (colFlags[col] & RWGui.LAYOUT_H_RIGHT) != 0 ? colWidths[col] :
-					( (colFlags[col] & RWGui.LAYOUT_H_CENTRE) != 0 ? (colWidths[col] - elementSizes.x) / 2 : 0);
+					( (colFlags[col] & RWGui.LAYOUT_H_CENTRE) != 0 ? (colWidths[col] - elemWidths[count]) / 2 : 0);
 				// if the ROW is bottom-aligned, position cell top edge a whole cell height above row bottom;
 				// if it is middle-aligned, position cell top edge to result centred in row;
 				// otherwise (top-aligned), position cell top edge at row top edge
-				int	elY	= (rowFlags[row] & RWGui.LAYOUT_V_BOTTOM) != 0 ? -(rowHeights[row] - elementSizes.y) :
-					( (colFlags[col] & RWGui.LAYOUT_V_MIDDLE) != 0 ? (elementSizes.y - rowHeights[row]) / 2 : 0);
-				item.getL().setPosition(x + elX, y + elY, false);
+				int	elY	= (rowFlags[row] & RWGui.LAYOUT_V_BOTTOM) != 0 ? -(rowHeights[row] - elemHeights[count]) :
+					( (colFlags[col] & RWGui.LAYOUT_V_MIDDLE) != 0 ? (elemHeights[count] - rowHeights[row]) / 2 : 0);
+				GuiBatch.setPosition(element, x + elX, y + elY);
 			}
 			x	+= colWidths[col] + spacingW;		// left edge of next column
 			if (col == maxNumOfCols - 1)			// if number of column exceeded
@@ -237,11 +232,21 @@ public class GuiTableLayout extends GuiLayout
 				x	= 0;							// left edge of first column...
 				y	-= rowHeights[row] + spacingH;	// ... and top edge of next row (below)
 			}
-			count++;
-			// do not enumerate beyond the max expected number of cells
-			if (count >= maxNumOfCols * maxNumOfRows)
-				break;
 		}
-		setSize(width, height, false);
+		GuiShadow.setSize(this, measuredWidth, measuredHeight);
+	}
+
+	// Copies the column widths and row heights measured for proto too, which
+	// the arrange pass relies on; tables of different sizes are never copied.
+	@Override
+	boolean copyLayoutFrom(GuiLayout proto)
+	{
+		GuiTableLayout	tProto	= proto instanceof GuiTableLayout ? (GuiTableLayout)proto : null;
+		if (tProto == null || tProto.maxNumOfCols != maxNumOfCols || tProto.maxNumOfRows != maxNumOfRows
+				|| !super.copyLayoutFrom(proto))
+			return false;
+		System.arraycopy(tProto.colWidths, 0, colWidths, 0, maxNumOfCols);
+		System.arraycopy(tProto.rowHeights, 0, rowHeights, 0, maxNumOfRows);
+		return true;
 	}
 }
@@ -74,16 +74,16 @@ public final class GuiTitleBar extends GuiPanel
 		{
 			cancelButton	= new GuiImage(0, 0, false, RWGui.BUTTON_SIZE, RWGui.BUTTON_SIZE, false);
 			RWGui.setImage(cancelButton, RWGui.ICN_CROSS);
-			cancelButton.setPivot(PivotPosition.TopLeft);
-			cancelButton.setClickable(true);
-			cancelButton.setVisible(true);
+			GuiShadow.setPivot(cancelButton, PivotPosition.TopLeft);
+			GuiShadow.setClickable(cancelButton, true);
+			GuiBatch.setVisible(cancelButton, true);
 			addChild(cancelButton);
 		}
 		// compute minimal width
 		minWidth	= (int)(RWGui.getTextWidth(titleText, RWGui.TITLE_SIZE) +
 				(hasCancelButton ? RWGui.BUTTON_SIZE + RWGui.DEFAULT_PADDING*3 : RWGui.DEFAULT_PADDING));
 		// set initial sizes to have give parent something on which to base its own layout
-		setSize(minWidth, TITLEBAR_HEIGHT, false);
+		GuiShadow.setSize(this, minWidth, TITLEBAR_HEIGHT);
 	}
 
 	/**
@@ -149,12 +149,12 @@ public final class GuiTitleBar extends GuiPanel
 		int	parentBorder	= (int)parent.getBorderThickness();
 		// position the title bat at the top left corner of the parent, but
 		// inside the parent border, if any
-		setPosition(parentBorder, parentHeight-parentBorder, false);
+		GuiBatch.setPosition(this, parentBorder, parentHeight-parentBorder);
 		// size the title bar to occupy the full parent width minus any border
-		setSize(parentWidth - parentBorder*2, TITLEBAR_HEIGHT - parentBorder, false);
+		GuiShadow.setSize(this, parentWidth - parentBorder*2, TITLEBAR_HEIGHT - parentBorder);
 		if (cancelButton != null)
-			cancelButton.setPosition(parentWidth - (RWGui.DEFAULT_PADDING + RWGui.BUTTON_SIZE),
-					CANCEL_YPOS, false);
+			GuiBatch.setPosition(cancelButton, parentWidth - (RWGui.DEFAULT_PADDING + RWGui.BUTTON_SIZE),
+					CANCEL_YPOS);
 	}
 
 	/**
@@ -165,10 +165,10 @@ public final class GuiTitleBar extends GuiPanel
 	 */
 	public void addToPlayer(Player player)
 	{
-		player.addGuiElement(this);
-		player.addGuiElement(title);
+		GuiBatch.add(player, this);
+		GuiBatch.add(player, title);
 		if (cancelButton != null)
-			player.addGuiElement(cancelButton);
+			GuiBatch.add(player, cancelButton);
 	}
 
 	/**
@@ -179,10 +179,10 @@ public final class GuiTitleBar extends GuiPanel
 	 */
 	public void removeFromPlayer(Player player)
 	{
-		player.removeGuiElement(this);
-		player.removeGuiElement(title);
+		GuiBatch.remove(player, this);
+		GuiBatch.remove(player, title);
 		if (cancelButton != null)
-			player.removeGuiElement(cancelButton);
+			GuiBatch.remove(player, cancelButton);
 	}
 
 }
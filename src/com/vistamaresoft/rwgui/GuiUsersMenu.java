@@ -16,6 +16,9 @@ import java.util.List;
 import com.vistamaresoft.rwgui.RWGui.Pair;
 import com.vistamaresoft.rwgui.RWGui.RWGuiCallback;
 import net.risingworld.api.Plugin;
+import net.risingworld.api.events.player.gui.PlayerGuiInputEvent;
+import net.risingworld.api.gui.GuiLabel;
+import net.risingworld.api.gui.GuiTextField;
 
 /**
  * A sub-class of GuiMenu, displaying a list of all the players known to the
@@ -25,7 +28,20 @@ import net.risingworld.api.Plugin;
  * <p>Upon a click event, the menu reports to the callback object with an <i>id</i>
  * parameter equal to the player DB ID and a String <i>data</i> parameter  with
  * the name of the player.
- * <p>For the rest, a GuiUsersMenu is managed exactly like a regular GuiMenu.
+ * <p>For the rest, a GuiUsersMenu is managed like a regular GuiMenu, with a
+ * difference: the player names are not items of the menu, but rows of a
+ * list nested in it, below the filter text field. removeChild(String) and
+ * removeItem(String) therefore do not find player names (they only find
+ * items added with addChild() or addItem(), which are placed below the
+ * list), and the item indices used by removeChild(int) and removeItem(int)
+ * count the filter field and the list as the first two items.
+ * <p>The menu only creates as many items as it can display at once; while
+ * the player scrolls the list, the same items are re-used for the names
+ * coming into view. The list is the one current when the menu is created.
+ * <p>Above the list, a text field allows to filter the list: once some text
+ * is entered (confirming it with ENTER), only the players whose names start
+ * with that text, ignoring case, are listed. Entering an empty text lists
+ * all the players again.
  * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
  * <b>this class cannot instantiated or used in any way</b> from within the onEnable()
  * method of a plug-in, as it is impossible to be sure that, at that moment,
@@ -36,10 +52,26 @@ import net.risingworld.api.Plugin;
  */
 public class GuiUsersMenu extends GuiMenu
 {
+	private static final	int		FILTER_MIN_WIDTH	= 120;
+
+	private final	PlayerDirectory	directory;
+	private final	List<Pair<Integer,String>>	users;
+	private final	int			excludeIndex;	// the position in users of the excluded player, or -1
+	private final	GuiTextField	filterField;
+	private final	GuiVerticalLayout	list;
+	private final	int			rowWidth;
+	private final	UsersBinder	binder;
+	// the current filter: the range of matching players in the directory
+	// prefix order and the position in it of the excluded player, if any
+	private			boolean		filtered;
+	private			int			filterStart;
+	private			int			filterEnd;
+	private			int			filterExclude;
+
 	/**
 	 * Creates a new GuiUsersMenu.
 	 * @param	plugin		the plug-in the GuiMenu is intended for. This
-	 * 						is only needed to manage the internal event listener
+	 * 						is currently not used by the window
 	 * 						and has no effects on the plug-in itself.
 	 * @param	titleText	the text of the title.
 	 * @param	callback	the callback object to which to report events. Can
@@ -55,13 +87,106 @@ public class GuiUsersMenu extends GuiMenu
 	{
 		super(plugin, titleText, callback);
 
-		List<Pair<Integer,String>>	users	= RWGui.getPlayers(plugin);
-		if (users != null)
+		directory		= RWGui.getDirectory(plugin);
+		users			= directory.getPlayers();
+		excludeIndex	= directory.indexOf(excludeId);
+		rowWidth		= directory.getMaxNameWidth(RWGui.ITEM_SIZE);
+		// the filter field above the list
+		filterField		= new GuiTextField(0, 0, false, Math.max(rowWidth, FILTER_MIN_WIDTH),
+				RWGui.TEXTENTRY_HEIGHT, false);
+		layout.addChild(filterField, RWGui.FILTER_ID, null);
+		// the list proper; create the pool of rows and let the list bind them
+		// to the players; rows are given a placeholder id only to be clickable
+		list			= (GuiVerticalLayout)layout.addNewLayoutChild(RWGui.LAYOUT_VERT, RWGui.LAYOUT_H_LEFT);
+		list.setMaxVisibleRows(MAX_NUM_OF_ITEMS);
+		list.setMargin(0);
+		binder			= new UsersBinder();
+		int	poolSize	= Math.min(MAX_NUM_OF_ITEMS, binder.getRowCount());
+		for (int i = 0; i < poolSize; i++)
+			list.addChild(new GuiLabel("", 0, 0, false), 0, null);
+		list.setRowBinder(binder);
+	}
+
+	//********************
+	// EVENTS
+	//********************
+
+	@Override
+	public void onTextEntry(PlayerGuiInputEvent event)
+	{
+		if (event.getGuiElement() == filterField)
+			setFilter(event.getInput());
+		else
+			super.onTextEntry(event);
+	}
+
+	//********************
+	// PUBLIC METHODS
+	//********************
+
+	/**
+	 * Restricts the list to the players whose name starts with prefix,
+	 * ignoring case, and scrolls the list back to the top.
+	 * @param	prefix	the start of the names to list; an empty or null
+	 *					prefix lists all the players.
+	 */
+	public void setFilter(String prefix)
+	{
+		if (prefix != null)
+			prefix	= prefix.trim();
+		filtered	= prefix != null && !prefix.isEmpty();
+		if (filtered)
+		{
+			filterStart		= directory.prefixStart(prefix);
+			filterEnd		= directory.prefixEnd(prefix);
+			filterExclude	= excludeIndex >= 0 ? directory.toPrefixOrder(excludeIndex) : -1;
+			if (filterExclude < filterStart || filterExclude >= filterEnd)
+				filterExclude	= -1;
+		}
+		list.setRowBinder(binder);
+		layout();
+	}
+
+	//********************
+	// HANDLERS
+	//********************
+
+	private class UsersBinder implements GuiVerticalLayout.RowBinder
+	{
+		@Override
+		public int getRowCount()
+		{
+			if (filtered)
+				return filterExclude >= 0 ? filterEnd - filterStart - 1 : filterEnd - filterStart;
+			return excludeIndex >= 0 ? users.size() - 1 : users.size();
+		}
+
+		@Override
+		public int getRowWidth()
+		{
+			return rowWidth;
+		}
+
+		@Override
+		public void bindRow(int poolIndex, int itemIndex)
 		{
-			for (Pair<Integer,String> entry : users)
-				if (entry.getL() != excludeId)
-					addChild(entry.getR(), entry.getL(), entry.getR());
+			Pair<Integer,String>	user;
+			// skip the excluded player, if any
+			if (filtered)
+			{
+				itemIndex	+= filterStart;
+				if (filterExclude >= 0 && itemIndex >= filterExclude)
+					itemIndex++;
+				user	= directory.getInPrefixOrder(itemIndex);
+			}
+			else
+			{
+				if (excludeIndex >= 0 && itemIndex >= excludeIndex)
+					itemIndex++;
+				user	= users.get(itemIndex);
+			}
+			((GuiLabel)list.getChild(poolIndex)).setText(user.getR());
+			list.setChildData(poolIndex, user.getL(), user.getR());
 		}
 	}
-	
 }
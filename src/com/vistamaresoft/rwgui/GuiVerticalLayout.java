@@ -17,7 +17,6 @@ import net.risingworld.api.gui.GuiElement;
 import net.risingworld.api.gui.GuiImage;
 import net.risingworld.api.gui.PivotPosition;
 import net.risingworld.api.objects.Player;
-import net.risingworld.api.utils.Vector2i;
 
 /**
 	A class implementing an automatic vertical layout in which children
@@ -31,6 +30,9 @@ import net.risingworld.api.utils.Vector2i;
 	<p>A maximum number of visible items can be set (default is unlimited),
 	then the layout will only show as many items; if there are more items an
 	up arrow button and a down arrow button allow to scroll the full item list.
+	Scrolling is applied at the next game tick, merging several clicks
+	received within the same tick, and only touches the rows entering or
+	leaving the visible window.
 	<b>Note</b>: For this to work correctly, all items shall have the same
 	height; if different items have different height, the layout is likely to turn
 	out wrong.
@@ -58,11 +60,14 @@ public class GuiVerticalLayout extends GuiLayout
 	private GuiImage	buttonPrev;
 	private	int			firstItem;			// the index of the first shown menu item in the list of
 											// all the items;
+	private	int			shownFirstItem;		// the firstItem the rows currently on screen are for
+	private	boolean		scrollPending;		// whether a scroll update is queued for the next tick
 	private	int			numOfVisibleRows;
 	private	int			visibleRowsHeight;	// the total height of the visible rows, not adjusted for minHeight
 	private	int			visibleRowsSpacing;
 	private	int			visibleRowsTop;
 	private int			visibleRowsWidth;
+	private	RowBinder	rowBinder;			// the source of the rows of a virtual list, if any
 
 	/**
 	Creates an empty vertical layout.
@@ -85,16 +90,18 @@ public class GuiVerticalLayout extends GuiLayout
 		maxVisibleRows = Integer.MAX_VALUE;
 		buttonNext	= new GuiImage(0, 0, false, RWGui.BUTTON_SIZE, RWGui.BUTTON_SIZE, false);
 		RWGui.setImage(buttonNext, RWGui.ICN_ARROW_DOWN);
-		buttonNext.setPivot(PivotPosition.BottomLeft);
-		buttonNext.setClickable(true);
-		buttonNext.setVisible(false);
+		GuiShadow.setPivot(buttonNext, PivotPosition.BottomLeft);
+		GuiShadow.setClickable(buttonNext, true);
+		GuiBatch.setVisible(buttonNext, false);
 		baseAddChild(buttonNext);
 		buttonPrev	= new GuiImage(0, 0, false, RWGui.BUTTON_SIZE, RWGui.BUTTON_SIZE, false);
 		RWGui.setImage(buttonPrev, RWGui.ICN_ARROW_UP);
-		buttonPrev.setPivot(PivotPosition.TopLeft);
-		buttonPrev.setClickable(true);
-		buttonPrev.setVisible(false);
+		GuiShadow.setPivot(buttonPrev, PivotPosition.TopLeft);
+		GuiShadow.setClickable(buttonPrev, true);
+		GuiBatch.setVisible(buttonPrev, false);
 		baseAddChild(buttonPrev);
+		itemIndex.put(buttonNext, this, -1);
+		itemIndex.put(buttonPrev, this, -1);
 	}
 
 	/**
@@ -110,6 +117,7 @@ public class GuiVerticalLayout extends GuiLayout
 		if (newMaxVisibleRows < 1)
 			newMaxVisibleRows	= Integer.MAX_VALUE;
 		maxVisibleRows	= newMaxVisibleRows;
+		invalidate();
 	}
 
 	/**
@@ -120,6 +128,23 @@ public class GuiVerticalLayout extends GuiLayout
 		return maxVisibleRows;
 	}
 
+	/**
+	 * Turns the layout into a virtual list: the children of the layout are
+	 * a pool of rows whose contents are re-bound by binder to the items of
+	 * the list whenever the list is scrolled.
+	 * <p>The pool should have no more than the maximum number of visible
+	 * items; all the rows in the pool are re-bound when this method is called.
+	 * @param	binder	the object binding the list items to the rows.
+	 */
+	void setRowBinder(RowBinder binder)
+	{
+		rowBinder	= binder;
+		firstItem	= 0;
+		shownFirstItem	= 0;
+		bindRows();
+		invalidate();
+	}
+
 	/**
 	 * Returns the id associated with element, if element is one of the
 	 * children of the layout (recursively); or null otherwise.
@@ -203,9 +228,9 @@ public class GuiVerticalLayout extends GuiLayout
 	 */
 	public int removeChild(int itemIndex)
 	{
-		if (itemIndex < 0 || itemIndex >= children.size())
+		if (itemIndex < 0 || itemIndex >= numOfChildren)
 			return RWGui.ERR_INVALID_PARAMETER;
-		removeChild(children.get(itemIndex).getL());
+		removeChild(elements[itemIndex]);
 		return itemIndex;
 	}
 
@@ -226,6 +251,8 @@ public class GuiVerticalLayout extends GuiLayout
 	{
 		baseRemoveChild(buttonNext);
 		baseRemoveChild(buttonPrev);
+		itemIndex.remove(buttonNext);
+		itemIndex.remove(buttonPrev);
 		super.free();
 	}
 
@@ -244,8 +271,8 @@ public class GuiVerticalLayout extends GuiLayout
 	@Override
 	public void hide(Player player)
 	{
-		player.removeGuiElement(buttonNext);
-		player.removeGuiElement(buttonPrev);
+		GuiBatch.remove(player, buttonNext);
+		GuiBatch.remove(player, buttonPrev);
 		super.hide(player);
 	}
 
@@ -261,94 +288,134 @@ public class GuiVerticalLayout extends GuiLayout
 	@Override
 	public void show(Player player)
 	{
-		player.addGuiElement(buttonNext);
-		player.addGuiElement(buttonPrev);
+		GuiBatch.add(player, buttonNext);
+		GuiBatch.add(player, buttonPrev);
 		super.show(player);
 	}
 
 	/**
-		Places child elements one above the other from the top down.
-
-		As this method lays its children out recursively, it is usually
-		necessary to call this method manually only for the top layout of a
-		layout hierarchy.
+		Measures the natural size of the layout: the visible rows one above
+		the other, separated by the padding, plus the scroll buttons if not all
+		the rows are visible, within the margins.
 	*/
 	@Override
-	void layout(int minWidth, int minHeight, boolean reset)
+	void measure()
 	{
-		int		height, width;
-		if (children == null || children.isEmpty())
+		if (numOfChildren == 0)
+		{
+			measuredWidth	= measuredHeight	= 0;
 			return;
-		if (reset)
+		}
+		int		height	= 0;
+		int		width	= 0;
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			Vector2i	elemSizes;
-			width				= 0;
-			height				= minHeight	= 0;
-			int			count	= 0;
-			for (Pair<GuiElement,?> item : children)
+			measureChild(elements[i], sizes);
+			if (width < sizes.x)
+				width	= sizes.x;
+			if (isRowShown(i))
 			{
-				GuiElement	element			= item.getL();
-				if (element instanceof GuiLayout)
-					((GuiLayout)element).layout(width, 0, reset);
-				elemSizes	= RWGui.getElementSizes(element);
-				if (width < elemSizes.x)
-					width	= elemSizes.x;
-				if (count >= firstItem && count < firstItem + maxVisibleRows)
-				{
-					height	+= elemSizes.y + padding;
-				}
-				count++;
+				height	+= sizes.y + padding;
 			}
-			height	-= padding;	// discount last bottom padding
-			visibleRowsHeight	= height;
-			visibleRowsWidth	= width;
-			visibleRowsSpacing	= padding;			// default spacing
-			visibleRowsTop		= height + margin;	// include bottom margin
-			width				+= margin;			// add left margin
-			height				+= margin * 2;		// add top and bottom margin
 		}
-		else
+		// rows of a virtual list shall be wide enough for any item
+		if (rowBinder != null && width < rowBinder.getRowWidth())
+			width	= rowBinder.getRowWidth();
+		if (height > 0)
+			height	-= padding;	// discount last bottom padding
+		// (a virtual list may have rows and show none of them, if it has no item)
+		visibleRowsHeight	= height;
+		visibleRowsWidth	= width;
+		// add margins and UP/DOWN button width, if required
+		measuredWidth		= width + margin * 2;
+		if (getItemCount() > maxVisibleRows)
+			measuredWidth	+= padding + RWGui.BUTTON_SIZE;
+		measuredHeight		= height + margin * 2;
+	}
+
+	/**
+		Places child elements one above the other from the top down.
+
+		Sub-layouts are arranged as wide as the widest row.
+	*/
+	@Override
+	void arrange(int width, int height)
+	{
+		if (numOfChildren == 0)
+			return;
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			for (Pair<GuiElement,?> item : children)
+			GuiElement	element			= elements[i];
+			if (element instanceof GuiLayout)
 			{
-				GuiElement	element			= item.getL();
-				if (element instanceof GuiLayout)
-					((GuiLayout)element).layout(visibleRowsWidth, 0, reset);
+				GuiLayout	layout	= (GuiLayout)element;
+				layout.arrangeCached(Math.max(visibleRowsWidth, layout.measuredWidth), layout.measuredHeight);
 			}
-			width		= visibleRowsWidth + margin;			// add left margin
-			height		= visibleRowsHeight + margin * 2;		// add top and bottom margin
-			visibleRowsSpacing	= padding;						// default spacing
-			visibleRowsTop		= height - margin;				// top row clears top margin
-			// if required minHeight > computed height, place excess vertical space
-			// according to arrangement flags
-			if (minHeight > height)
+		}
+		int		naturalHeight	= visibleRowsHeight + margin * 2;	// add top and bottom margin
+		visibleRowsSpacing	= padding;								// default spacing
+		visibleRowsTop		= naturalHeight - margin;				// top row clears top margin
+		// if required height > natural height, place excess vertical space
+		// according to arrangement flags
+		if (height > naturalHeight)
+		{
+			if ( (flags & RWGui.LAYOUT_V_BOTTOM) != 0)		// BOTTOM: all space at top
+				visibleRowsTop	-= height - naturalHeight;
+			else if ( (flags & RWGui.LAYOUT_V_MIDDLE) != 0)	// MIDDLE: half space above and half below
+				visibleRowsTop	-= (height - naturalHeight) / 2;
+			else if ( (flags & RWGui.LAYOUT_V_SPREAD) != 0 && numOfChildren > 1)	// SPREAD: distribute evenly 
 			{
-				if ( (flags & RWGui.LAYOUT_V_BOTTOM) != 0)		// BOTTOM: all space at top
-					visibleRowsTop	-= minHeight - height;
-				else if ( (flags & RWGui.LAYOUT_V_MIDDLE) != 0)	// MIDDLE: half space above and half below
-					visibleRowsTop	-= (minHeight - height) / 2;
-				else if ( (flags & RWGui.LAYOUT_V_SPREAD) != 0)	// SPREAD: distribute evenly 
-				{
-					visibleRowsTop = minHeight - margin;
-					visibleRowsSpacing	= padding + (minHeight - height) / (children.size() - 1);
-				}
-				height	= minHeight;
+				visibleRowsTop = height - margin;
+				visibleRowsSpacing	= padding + (height - naturalHeight) / (numOfChildren - 1);
 			}
 		}
 
-		// add UP/DOWN button width, if required
-		if (children.size() > maxVisibleRows)
+		// position the UP/DOWN buttons, if required
+		if (getItemCount() > maxVisibleRows)
 		{
-			width += padding;									// align width at items right edge
-			buttonPrev.setPosition(width, visibleRowsTop, false);	// position the buttons
-			buttonNext.setPosition(width, margin, false);
-			width += RWGui.BUTTON_SIZE;							// add width for arrow buttons
+			int	x	= visibleRowsWidth + margin + padding;		// align at items right edge
+			GuiBatch.setPosition(buttonPrev, x, visibleRowsTop);
+			GuiBatch.setPosition(buttonNext, x, margin);
 		}
-		width	+= margin;										// add right margin
-		if (width < minWidth)
-			width = minWidth;
-		setSize(width, height, false);
+		GuiShadow.setSize(this, width, height);
+		updateChildren();
+	}
+
+	// Copies the placement of the visible rows and of the scroll buttons too,
+	// then places and shows the rows of the current page.
+	@Override
+	boolean copyLayoutFrom(GuiLayout proto)
+	{
+		if (!super.copyLayoutFrom(proto))
+			return false;
+		GuiVerticalLayout	vProto	= (GuiVerticalLayout)proto;
+		visibleRowsHeight	= vProto.visibleRowsHeight;
+		visibleRowsSpacing	= vProto.visibleRowsSpacing;
+		visibleRowsTop		= vProto.visibleRowsTop;
+		visibleRowsWidth	= vProto.visibleRowsWidth;
+		GuiBatch.getPosition(vProto.buttonPrev, sizes);
+		GuiBatch.setPosition(buttonPrev, sizes.x, sizes.y);
+		GuiBatch.getPosition(vProto.buttonNext, sizes);
+		GuiBatch.setPosition(buttonNext, sizes.x, sizes.y);
 		updateChildren();
+		return true;
+	}
+
+	// Indexes the scroll buttons too, which getItemData() deals with.
+	@Override
+	void indexChildren(ItemIndex index, boolean add)
+	{
+		super.indexChildren(index, add);
+		if (add)
+		{
+			index.put(buttonNext, this, -1);
+			index.put(buttonPrev, this, -1);
+		}
+		else
+		{
+			index.remove(buttonNext);
+			index.remove(buttonPrev);
+		}
 	}
 
 	//********************
@@ -358,9 +425,11 @@ public class GuiVerticalLayout extends GuiLayout
 	private void scrollDown()
 	{
 		firstItem	+= maxVisibleRows-1;
-		if (firstItem + maxVisibleRows > children.size())
-			firstItem	= children.size() - maxVisibleRows;
-		updateChildren();
+		if (firstItem + maxVisibleRows > getItemCount())
+			firstItem	= getItemCount() - maxVisibleRows;
+		if (firstItem < 0)
+			firstItem	= 0;
+		queueScroll();
 	}
 
 	private void scrollUp()
@@ -368,36 +437,119 @@ public class GuiVerticalLayout extends GuiLayout
 		firstItem	-= maxVisibleRows-1;
 		if (firstItem < 0)
 			firstItem	= 0;
-		updateChildren();
+		queueScroll();
+	}
+
+	// Queues the update of the rows for the next tick, so that several page
+	// clicks received within the same tick result in a single update.
+	private void queueScroll()
+	{
+		if (scrollPending)
+			return;
+		scrollPending	= true;
+		GuiExecutor.post(this::applyScroll);
+	}
+
+	// Brings the rows on screen from shownFirstItem to firstItem, touching
+	// only the rows entering or leaving the visible window.
+	private void applyScroll()
+	{
+		scrollPending	= false;
+		if (firstItem == shownFirstItem)
+			return;
+		if (rowBinder != null)			// virtual lists only have a page worth of rows anyway
+		{
+			updateChildren();
+			return;
+		}
+		// hide the rows leaving the window
+		int	oldEnd	= Math.min(shownFirstItem + maxVisibleRows, numOfChildren);
+		for (int i = shownFirstItem; i < oldEnd; i++)
+			if (!isRowShown(i))
+				GuiBatch.setVisible(elements[i], false);
+		// place and show the rows in the window, all of which move
+		int	y		= visibleRowsTop;
+		int	newEnd	= Math.min(firstItem + maxVisibleRows, numOfChildren);
+		for (int i = firstItem; i < newEnd; i++)
+			y	= placeRow(elements[i], y);
+		shownFirstItem	= firstItem;
+		updateButtons();
+	}
+
+	// Returns the number of items in the list, which, for a virtual list,
+	// is not the number of children.
+	private int getItemCount()
+	{
+		return rowBinder != null ? rowBinder.getRowCount() : numOfChildren;
+	}
+
+	// Whether the childIndex-th child is currently shown: for a virtual list,
+	// the children always start at the first shown item.
+	private boolean isRowShown(int childIndex)
+	{
+		int	item	= rowBinder != null ? firstItem + childIndex : childIndex;
+		return item >= firstItem && item < firstItem + maxVisibleRows && item < getItemCount();
+	}
+
+	// Binds the rows of a virtual list to the items starting at firstItem.
+	private void bindRows()
+	{
+		if (rowBinder == null)
+			return;
+		int	count	= getItemCount();
+		for (int i = 0; i < numOfChildren && firstItem + i < count; i++)
+			rowBinder.bindRow(i, firstItem + i);
 	}
 
+	// Places and shows the rows in the visible window and hides all the others.
 	private void updateChildren()
 	{
-		int	count	= 0;
-		int	x;
+		if (rowBinder != null && shownFirstItem != firstItem)
+			bindRows();
 		int	y		= visibleRowsTop;
-		int	yDelta; 
-		for (Pair<GuiElement,?> item : children)
+		for (int i = 0; i < numOfChildren; i++)
 		{
-			GuiElement	element	= item.getL();
-			if (count < firstItem || count >= firstItem + maxVisibleRows)
-				element.setVisible(false);
+			if (!isRowShown(i))
+				GuiBatch.setVisible(elements[i], false);
 			else
-			{
-				boolean	centred	= (flags & RWGui.LAYOUT_H_CENTRE) != 0;
-				int		height	= RWGui.getElementSizes(element).y;
-				// position the next element below previous children
-				x	= margin + (centred ? visibleRowsWidth / 2 :
-					( (flags & RWGui.LAYOUT_H_RIGHT) != 0 ? visibleRowsWidth : 0) );
-				yDelta	= centred ? -(int)(height / 2) : 0;
-				element.setPosition(x, y+yDelta, false);
-				element.setVisible(true);
-				y	-= height + visibleRowsSpacing;
-			}
-			count++;
+				y	= placeRow(elements[i], y);
 		}
-		buttonPrev.setVisible(firstItem > 0);
-		buttonNext.setVisible(firstItem + maxVisibleRows < children.size());
+		shownFirstItem	= firstItem;
+		updateButtons();
+	}
+
+	// Places element as a visible row with its top edge at y and returns the
+	// top edge of the next row.
+	private int placeRow(GuiElement element, int y)
+	{
+		boolean	centred	= (flags & RWGui.LAYOUT_H_CENTRE) != 0;
+		int		height	= RWGui.getElementSizes(element, sizes).y;
+		int		x		= margin + (centred ? visibleRowsWidth / 2 :
+				( (flags & RWGui.LAYOUT_H_RIGHT) != 0 ? visibleRowsWidth : 0) );
+		int		yDelta	= centred ? -(int)(height / 2) : 0;
+		GuiBatch.setPosition(element, x, y+yDelta);
+		GuiBatch.setVisible(element, true);
+		return y - (height + visibleRowsSpacing);
+	}
+
+	private void updateButtons()
+	{
+		GuiBatch.setVisible(buttonPrev, firstItem > 0);
+		GuiBatch.setVisible(buttonNext, firstItem + maxVisibleRows < getItemCount());
+	}
+
+	/**
+	 * An interface for the objects supplying the items of a virtual list to
+	 * the pool of rows actually existing in the layout.
+	 */
+	interface RowBinder
+	{
+		/** Returns the total number of items in the list. */
+		int		getRowCount();
+		/** Returns a width suitable for any item of the list. */
+		int		getRowWidth();
+		/** Binds the itemIndex-th item of the list to the poolIndex-th child of the layout. */
+		void	bindRow(int poolIndex, int itemIndex);
 	}
 
 }
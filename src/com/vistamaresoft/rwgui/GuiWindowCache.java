@@ -0,0 +1,234 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiWindowCache.java - A cache of built windows, to re-use them rather than
+		building them again each time.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import net.risingworld.api.Plugin;
+import net.risingworld.api.objects.Player;
+
+/**
+ * A cache of built GuiModalWindow's, keyed by plug-in, window key and player.
+ * <p>A window obtained with get() is not freed when popped away (with its
+ * pop() or poppush() methods), but returned to the cache; the next get()
+ * with the same plug-in, key and player returns it, rather than having the
+ * plug-in build it again with all its labels, images and layout.
+ * <p>A window returned by the cache is as it was when popped: any state
+ * (text field contents, check box states, ...) shall be reset by the
+ * plug-in as required. The cache holds up to a maximum number of windows:
+ * beyond it, the least recently used window is freed. The windows of a
+ * player are freed when the player disconnects.
+ * <p>All the methods are thread-safe.
+ * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
+ * <b>this class cannot be used in any way</b> from within the onEnable()
+ * method of a plug-in, as it is impossible to be sure that, at that moment,
+ * the RWGui plug-in has already been loaded.
+ */
+public final class GuiWindowCache
+{
+	// CONSTANTS
+	//
+	private static final	int		DEFAULT_CAPACITY	= 64;
+
+	//
+	// FIELDS
+	//
+	// the cached windows, least recently used first
+	private static final	LinkedHashMap<Key,GuiModalWindow>	windows	=
+			new LinkedHashMap<>(16, 0.75f, true);
+	private static			int		capacity	= DEFAULT_CAPACITY;
+	private static			long	hits;
+	private static			long	misses;
+	private static			long	evictions;
+
+	private GuiWindowCache()	{	}
+
+	//********************
+	// PUBLIC METHODS
+	//********************
+
+	/**
+	 * Returns the cached window for the given plug-in, key and player,
+	 * removing it from the cache, or, if there is none, a new window
+	 * obtained from builder.
+	 * <p>Either way, the window will be returned to the cache, rather than
+	 * freed, when popped away.
+	 * @param	plugin	the plug-in the window belongs to.
+	 * @param	key		a key identifying the window within the plug-in.
+	 * @param	player	the player the window is for.
+	 * @param	builder	the function building a new window, on a cache miss.
+	 * @return	the cached or the newly built window.
+	 */
+	public static <T extends GuiModalWindow> T get(Plugin plugin, String key, Player player,
+			Supplier<T> builder)
+	{
+		Key	cacheKey	= new Key(plugin, key, player.getID());
+		synchronized(GuiWindowCache.class)
+		{
+			@SuppressWarnings("unchecked")
+			T	window	= (T)windows.remove(cacheKey);
+			if (window != null)
+			{
+				hits++;
+				return window;
+			}
+			misses++;
+		}
+		T	window	= builder.get();		// built outside of the lock
+		window.cacheKey	= cacheKey;
+		return window;
+	}
+
+	/**
+	 * Sets the maximum number of windows the cache can hold, freeing the
+	 * least recently used windows in excess.
+	 * @param	value	the new capacity; 0 disables the cache.
+	 */
+	public static void setCapacity(int value)
+	{
+		ArrayList<GuiModalWindow>	evicted;
+		synchronized(GuiWindowCache.class)
+		{
+			capacity	= Math.max(0, value);
+			evicted		= trim();
+		}
+		freeAll(evicted);
+	}
+
+	/** Returns the maximum number of windows the cache can hold. */
+	public static synchronized int getCapacity()	{ return capacity;			}
+	/** Returns the number of windows currently in the cache. */
+	public static synchronized int getSize()		{ return windows.size();	}
+	/** Returns the number of get() calls which found a cached window. */
+	public static synchronized long getHits()		{ return hits;				}
+	/** Returns the number of get() calls which had to build a new window. */
+	public static synchronized long getMisses()		{ return misses;			}
+	/** Returns the number of windows freed to make room for other windows. */
+	public static synchronized long getEvictions()	{ return evictions;			}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Returns a popped window to the cache; the least recently used windows
+	 * are freed, if the cache exceeds its capacity.
+	 */
+	static void release(GuiModalWindow window)
+	{
+		ArrayList<GuiModalWindow>	evicted;
+		synchronized(GuiWindowCache.class)
+		{
+			GuiModalWindow	old	= windows.put(window.cacheKey, window);
+			evicted			= trim();
+			if (old != null && old != window)	// another window with the same key was in use
+			{
+				evicted.add(old);
+				evictions++;
+			}
+		}
+		freeAll(evicted);
+	}
+
+	/** Frees the cached windows of player, typically on disconnection. */
+	static void removePlayer(Player player)
+	{
+		ArrayList<GuiModalWindow>	removed	= new ArrayList<>();
+		synchronized(GuiWindowCache.class)
+		{
+			Iterator<Map.Entry<Key,GuiModalWindow>>	iter	= windows.entrySet().iterator();
+			while (iter.hasNext())
+			{
+				Map.Entry<Key,GuiModalWindow>	entry	= iter.next();
+				if (entry.getKey().playerId == player.getID())
+				{
+					removed.add(entry.getValue());
+					iter.remove();
+				}
+			}
+		}
+		freeAll(removed);
+	}
+
+	/** Frees all the cached windows, typically on RWGui disabling. */
+	static void clear()
+	{
+		ArrayList<GuiModalWindow>	removed;
+		synchronized(GuiWindowCache.class)
+		{
+			removed	= new ArrayList<>(windows.values());
+			windows.clear();
+		}
+		freeAll(removed);
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Removes the least recently used windows in excess of the capacity and
+	// returns them, to be freed outside of the lock.
+	private static ArrayList<GuiModalWindow> trim()
+	{
+		ArrayList<GuiModalWindow>	evicted	= new ArrayList<>();
+		Iterator<GuiModalWindow>	iter	= windows.values().iterator();
+		while (windows.size() > capacity && iter.hasNext())
+		{
+			evicted.add(iter.next());
+			iter.remove();
+			evictions++;
+		}
+		return evicted;
+	}
+
+	private static void freeAll(ArrayList<GuiModalWindow> list)
+	{
+		for (GuiModalWindow window : list)
+		{
+			window.cacheKey	= null;
+			window.free();
+		}
+	}
+
+	static final class Key
+	{
+		private final	Plugin	plugin;
+		private final	String	key;
+		private final	int		playerId;
+
+		private Key(Plugin plugin, String key, int playerId)
+		{
+			this.plugin		= plugin;
+			this.key		= key;
+			this.playerId	= playerId;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+				return false;
+			Key	other	= (Key)o;
+			return plugin == other.plugin && playerId == other.playerId && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(plugin) * 31 + key.hashCode()) * 31 + playerId;
+		}
+	}
+}
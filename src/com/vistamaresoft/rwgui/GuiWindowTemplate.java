@@ -0,0 +1,96 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiWindowTemplate.java - A window definition laid out once and instantiated
+		many times.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.function.Supplier;
+
+/**
+ * A template of identical windows to be shown to several players (for
+ * instance, the same GuiDialogueBox with the same texts and sub-layouts).
+ * <p>The template is made of a definition, a function building the window,
+ * and of a prototype: a window built by the definition and laid out once,
+ * the first time the template is instantiated. Each new instance is built by
+ * the definition and then given the sizes and positions computed for the
+ * prototype, rather than being measured and laid out again.
+ * <p>The definition should build each time the same hierarchy of elements
+ * with the same contents. Each instance is checked against the prototype:
+ * structure, layout settings, title and the sizes of all the elements
+ * (for labels, their texts and fonts); an instance which differs in any of
+ * them is laid out normally when displayed, so a definition producing
+ * varying contents is still laid out correctly, only without any saving. After instantiation, each
+ * instance is a window of its own, which can be changed, shown, pushed,
+ * popped and freed independently (changing its contents lays it out again).
+ * <p>The prototype is never displayed and never changed once laid out;
+ * the definition of a template cannot be changed. All the methods are
+ * thread-safe.
+ * <p><b>Important</b>: due to the way Rising World plug-ins are loaded,
+ * <b>this class cannot be used in any way</b> from within the onEnable()
+ * method of a plug-in, as it is impossible to be sure that, at that moment,
+ * the RWGui plug-in has already been loaded.
+ * @param	<T>	the type of the windows of the template.
+ */
+public final class GuiWindowTemplate<T extends GuiModalWindow>
+{
+	private final	Supplier<T>	definition;
+	private			T			prototype;
+
+	/**
+	 * Creates a new window template.
+	 * @param	definition	the function building each window of the template.
+	 */
+	public GuiWindowTemplate(Supplier<T> definition)
+	{
+		this.definition	= definition;
+	}
+
+	/**
+	 * Builds a new window from the template, ready to be displayed.
+	 * <p>The instance is checked against the prototype here: if the contents
+	 * of its children are changed before it is first displayed, its
+	 * invalidate() method must be called for the change to be laid out.
+	 * @return	the new window.
+	 */
+	public T newInstance()
+	{
+		T	window	= definition.get();
+		window.copyLayoutFrom(getPrototype());
+		return window;
+	}
+
+	/**
+	 * Releases the resources used by the prototype; the template can still
+	 * be used afterwards, but the prototype will be built and laid out again.
+	 */
+	public synchronized void free()
+	{
+		if (prototype != null)
+		{
+			prototype.free();
+			prototype	= null;
+		}
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private synchronized T getPrototype()
+	{
+		if (prototype == null)
+		{
+			prototype	= definition.get();
+			prototype.layout();
+		}
+		return prototype;
+	}
+}
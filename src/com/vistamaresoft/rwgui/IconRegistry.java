@@ -0,0 +1,384 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	IconRegistry.java - A registry of images shared among all plug-ins.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import net.risingworld.api.gui.GuiImage;
+import net.risingworld.api.utils.ImageInformation;
+
+/**
+ * The registry of the images used by the GuiImage's of all the plug-ins
+ * through RWGui.setImage(GuiImage, String).
+ * <p>Images are looked up by asset path and stored by content: different
+ * paths leading to identical files share the same ImageInformation. Each
+ * image counts the GuiImage's currently using it; images no longer used by
+ * any GuiImage are evicted, least recently used first, once the total size
+ * of the registered images exceeds the memory limit.
+ * <p>The size of an image is the memory it takes once decoded, estimated
+ * as width x height x 4 bytes from the image file header without decoding
+ * it; for the rare files whose header cannot be read, the file size is used.
+ * <p>Files are read, hashed and measured outside of the registry lock, so
+ * that loading a new image does not hold up the other threads using it.
+ * <p>GuiImage's are weakly referenced: an image no longer reachable stops
+ * being a user of its registered image, even if it was never released.
+ * <p>The stock icons are registered when loaded and are never evicted.
+ * <p>All the methods are thread-safe.
+ */
+final class IconRegistry
+{
+	/** The default memory limit, in bytes */
+	static final			long	DEFAULT_MEMORY_LIMIT	= 16L * 1024 * 1024;
+
+	//
+	// FIELDS
+	//
+	private static final	Map<String,Entry>			byPath	= new HashMap<>();
+	// in least recently used order
+	private static final	LinkedHashMap<String,Entry>	byHash	= new LinkedHashMap<>(16, 0.75f, true);
+	// GuiImage (weakly referenced, by identity) -> image it displays
+	private static final	Map<UserRef,Entry>			users	= new HashMap<>();
+	private static final	ReferenceQueue<GuiImage>	collected	= new ReferenceQueue<>();
+	private static			long	memoryLimit		= DEFAULT_MEMORY_LIMIT;
+	private static			long	memoryUsed		= 0;
+	private static volatile	boolean	hasUsers		= false;
+
+	private IconRegistry()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Registers an image which is never evicted, typically a stock icon.
+	 * @param	path	the asset path of the image
+	 * @param	image	the image already loaded from path
+	 */
+	static void pin(String path, ImageInformation image)
+	{
+		String	key		= normalise(path);
+		if (key == null)
+			return;
+		Content	content	= examine(key);
+		if (content == null)			// not readable: register it by path, with no size
+			content	= new Content(key, 0);
+		synchronized(IconRegistry.class)
+		{
+			register(key, content, image).pinned	= true;
+		}
+	}
+
+	/**
+	 * Returns the image stored at path, loading it if not registered yet,
+	 * and counts image as one of its users. If image was using another
+	 * registered image, that image is released.
+	 * @param	image	the GuiImage which will display the image
+	 * @param	path	the asset path of the image
+	 * @return	the image or null if path cannot be read.
+	 */
+	static ImageInformation acquire(GuiImage image, String path)
+	{
+		String	key		= normalise(path);
+		if (key == null)
+			return null;
+		synchronized(IconRegistry.class)
+		{
+			Entry	entry	= byPath.get(key);
+			if (entry != null)
+				return use(image, entry);
+		}
+		// a path not registered yet: read, hash and measure the file outside
+		// of the lock, then look for an image with the same contents
+		Content	content	= examine(key);
+		if (content == null)
+			return null;
+		synchronized(IconRegistry.class)
+		{
+			Entry	entry	= register(key, content, null);
+			if (entry != null)
+				return use(image, entry);
+		}
+		// new contents: load the image outside of the lock too; should another
+		// thread register the same contents meanwhile, its image is used
+		ImageInformation	loaded	= new ImageInformation(key);
+		synchronized(IconRegistry.class)
+		{
+			return use(image, register(key, content, loaded));
+		}
+	}
+
+	/**
+	 * Stops counting image as a user of the registered image it displays,
+	 * if any.
+	 * @param	image	the GuiImage no longer using its registered image.
+	 */
+	static void release(GuiImage image)
+	{
+		if (!hasUsers)					// nothing to do for stock icons only
+			return;
+		synchronized(IconRegistry.class)
+		{
+			expungeCollected();
+			Entry	entry	= users.remove(new UserRef(image, null));
+			if (entry != null)
+				entry.refCount--;
+			hasUsers	= !users.isEmpty();
+			evict();
+		}
+	}
+
+	/**
+	 * Sets the memory limit of the registry, evicting unused images if needed.
+	 * @param	bytes	the new limit, in bytes
+	 */
+	static synchronized void setMemoryLimit(long bytes)
+	{
+		expungeCollected();
+		memoryLimit	= bytes;
+		evict();
+	}
+
+	/** Returns the total size of the registered images, in bytes. */
+	static synchronized long getMemoryUsed()
+	{
+		expungeCollected();
+		evict();
+		return memoryUsed;
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Maps key to the registered image with the given contents, registering
+	// image for them if none and image is not null; returns the entry of
+	// the image or null if neither registered nor given. To be called with
+	// the lock held.
+	private static Entry register(String key, Content content, ImageInformation image)
+	{
+		Entry	entry	= byPath.get(key);		// registered by another thread meanwhile?
+		if (entry != null)
+			return entry;
+		entry	= byHash.get(content.hash);
+		if (entry == null)
+		{
+			if (image == null)
+				return null;
+			entry	= new Entry(content.hash, image, content.size);
+			byHash.put(content.hash, entry);
+			memoryUsed	+= entry.size;
+		}
+		entry.paths.add(key);
+		byPath.put(key, entry);
+		return entry;
+	}
+
+	// Counts image as a user of the registered image of entry and returns
+	// it. To be called with the lock held.
+	private static ImageInformation use(GuiImage image, Entry entry)
+	{
+		byHash.get(entry.hash);				// mark as recently used
+		expungeCollected();
+		Entry	oldEntry	= users.put(new UserRef(image, collected), entry);
+		if (oldEntry != entry)
+		{
+			entry.refCount++;
+			if (oldEntry != null)
+				oldEntry.refCount--;
+		}
+		hasUsers	= true;
+		evict();
+		return entry.image;
+	}
+
+	// Stops counting the GuiImage's collected by the garbage collector as users.
+	private static void expungeCollected()
+	{
+		Reference<? extends GuiImage>	ref;
+		while ( (ref = collected.poll()) != null)
+		{
+			Entry	entry	= users.remove(ref);
+			if (entry != null)
+				entry.refCount--;
+		}
+	}
+
+	// Evicts unused images, least recently used first, until the memory
+	// limit is met or no unused image remains.
+	private static void evict()
+	{
+		Iterator<Entry>	iter	= byHash.values().iterator();
+		while (memoryUsed > memoryLimit && iter.hasNext())
+		{
+			Entry	entry	= iter.next();
+			if (entry.pinned || entry.refCount > 0)
+				continue;
+			iter.remove();
+			for (String path : entry.paths)
+				byPath.remove(path);
+			memoryUsed	-= entry.size;
+		}
+	}
+
+	private static String normalise(String path)
+	{
+		if (path == null)
+			return null;
+		try
+		{
+			return Paths.get(path).toAbsolutePath().normalize().toString();
+		}
+		catch (RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	// Reads the file at path and returns its hash and decoded size, or null
+	// if it cannot be read. Does not need the lock.
+	private static Content examine(String path)
+	{
+		byte[]	bytes	= read(path);
+		return bytes != null ? new Content(hash(bytes), decodedSize(bytes)) : null;
+	}
+
+	// Returns the memory taken by the decoded image (4 bytes per pixel),
+	// reading only the image header, or the file size if not recognised.
+	private static long decodedSize(byte[] bytes)
+	{
+		try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes)))
+		{
+			Iterator<ImageReader>	readers	= in != null ? ImageIO.getImageReaders(in) : null;
+			if (readers != null && readers.hasNext())
+			{
+				ImageReader	reader	= readers.next();
+				try
+				{
+					reader.setInput(in);
+					return (long)reader.getWidth(0) * reader.getHeight(0) * 4;
+				}
+				finally
+				{
+					reader.dispose();
+				}
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// not an image format known to ImageIO: fall back to the file size
+		}
+		return bytes.length;
+	}
+
+	private static byte[] read(String path)
+	{
+		try
+		{
+			Path	file	= Paths.get(path);
+			return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	private static String hash(byte[] bytes)
+	{
+		try
+		{
+			byte[]			digest	= MessageDigest.getInstance("SHA-256").digest(bytes);
+			StringBuilder	hex		= new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e)	// never happens, SHA-256 is always available
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// A weak reference to a GuiImage, comparing by identity of the referent;
+	// once cleared, a reference is only equal to itself.
+	private static final class UserRef extends WeakReference<GuiImage>
+	{
+		private final	int		hash;
+
+		UserRef(GuiImage image, ReferenceQueue<GuiImage> queue)
+		{
+			super(image, queue);
+			hash	= System.identityHashCode(image);
+		}
+
+		@Override
+		public int hashCode()	{ return hash; }
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof UserRef))
+				return false;
+			GuiImage	image	= get();
+			return image != null && image == ((UserRef)o).get();
+		}
+	}
+
+	// The contents of an image file: their hash and their decoded size.
+	private static final class Content
+	{
+		final	String	hash;
+		final	long	size;
+
+		Content(String hash, long size)
+		{
+			this.hash	= hash;
+			this.size	= size;
+		}
+	}
+
+	private static final class Entry
+	{
+		final	String				hash;
+		final	ImageInformation	image;
+		final	long				size;
+		final	List<String>		paths		= new ArrayList<>(1);
+		int							refCount	= 0;
+		boolean						pinned		= false;
+
+		Entry(String hash, ImageInformation image, long size)
+		{
+			this.hash	= hash;
+			this.image	= image;
+			this.size	= size;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	ItemIndex.java - An index of the GuiElement's of a layout hierarchy.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import net.risingworld.api.gui.GuiElement;
+
+/**
+ * The index of all the GuiElement's of a layout hierarchy (typically the
+ * whole contents of a GuiModalWindow), used to dispatch click and text entry
+ * events without scanning the hierarchy.
+ * <p>Each element is mapped to the layout owning it and to its position among
+ * the children of that layout; the position is negative for the elements which
+ * the layout manages by itself (like the scroll buttons of a
+ * GuiVerticalLayout or the parts of a GuiCheckBox) and which the layout has to
+ * be asked about.
+ * <p>The index also maps the ids of the children back to the children, with
+ * an open-addressing hash table keyed on primitive ints. Several children
+ * may share an id (for instance, all the GuiCheckBox parts use a dummy id):
+ * their entries are chained in the order they were indexed and the id is
+ * mapped to the first of them; removing any of them only unlinks it from
+ * the chain, so all the operations stay O(1).
+ * <p>Elements are looked up by identity. The index is kept up to date by
+ * GuiLayout as children are added to and removed from any layout of the
+ * hierarchy.
+ */
+final class ItemIndex
+{
+	private static final	int		MIN_CAPACITY	= 16;
+
+	//
+	// FIELDS
+	//
+	private final	Map<GuiElement,Entry>	entries	= new IdentityHashMap<>();
+	// id -> chain of the entries with the id; a null head marks a free slot
+	private			int[]			idKeys		= new int[MIN_CAPACITY];
+	private			Entry[]			idHeads		= new Entry[MIN_CAPACITY];
+	private			Entry[]			idTails		= new Entry[MIN_CAPACITY];
+	private			int				idCount		= 0;
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Returns the entry of element or null if element is not indexed.
+	 */
+	Entry get(GuiElement element)
+	{
+		return entries.get(element);
+	}
+
+	/**
+	 * Indexes element as owned by owner, replacing any previous entry of it.
+	 * @param	element	the element to index
+	 * @param	owner	the layout owning element
+	 * @param	index	the position of element among the children of owner,
+	 *					or -1 if owner manages element by itself
+	 */
+	void put(GuiElement element, GuiLayout owner, int index)
+	{
+		Entry	entry	= entries.get(element);
+		if (entry == null)
+			entries.put(element, new Entry(element, owner, index));
+		else
+		{
+			entry.owner	= owner;
+			entry.index	= index;
+		}
+	}
+
+	/**
+	 * Updates the position of element, if indexed as a child of owner.
+	 */
+	void move(GuiElement element, GuiLayout owner, int index)
+	{
+		Entry	entry	= entries.get(element);
+		if (entry != null && entry.owner == owner)
+			entry.index	= index;
+	}
+
+	/**
+	 * Removes element, with its id if any, from the index; does nothing if
+	 * not indexed.
+	 */
+	void remove(GuiElement element)
+	{
+		Entry	entry	= entries.remove(element);
+		if (entry != null && entry.hasId)
+			unlink(entry);
+	}
+
+	/**
+	 * Returns the element with the given id or null if none; if several
+	 * elements have the id, the first indexed is returned.
+	 */
+	GuiElement getElement(int id)
+	{
+		Entry	entry	= getFirst(id);
+		return entry != null ? entry.element : null;
+	}
+
+	/**
+	 * Returns the entry of the first element indexed with the given id or
+	 * null if none; the following ones are linked by Entry.nextSameId.
+	 */
+	Entry getFirst(int id)
+	{
+		int	mask	= idKeys.length - 1;
+		for (int slot = hash(id) & mask; idHeads[slot] != null; slot = (slot + 1) & mask)
+			if (idKeys[slot] == id)
+				return idHeads[slot];
+		return null;
+	}
+
+	/**
+	 * Maps id to element, after any other element already mapped to id:
+	 * the first element indexed with an id is the one found. element shall
+	 * already be indexed with put().
+	 */
+	void putId(int id, GuiElement element)
+	{
+		Entry	entry	= entries.get(element);
+		if (entry == null)
+			return;
+		if (entry.hasId)
+		{
+			if (entry.id == id)
+				return;
+			unlink(entry);
+		}
+		if ((idCount + 1) * 2 > idKeys.length)		// keep the table at most half full
+			resize(idKeys.length * 2);
+		entry.id			= id;
+		entry.hasId			= true;
+		entry.nextSameId	= null;
+		int	mask	= idKeys.length - 1;
+		int	slot;
+		for (slot = hash(id) & mask; idHeads[slot] != null; slot = (slot + 1) & mask)
+			if (idKeys[slot] == id)
+			{
+				entry.prevSameId			= idTails[slot];
+				idTails[slot].nextSameId	= entry;
+				idTails[slot]				= entry;
+				return;
+			}
+		entry.prevSameId	= null;
+		idKeys[slot]		= id;
+		idHeads[slot]		= entry;
+		idTails[slot]		= entry;
+		idCount++;
+	}
+
+	/**
+	 * Unmaps id from element, if element is mapped to id; the other elements
+	 * with id, if any, stay mapped.
+	 */
+	void removeId(int id, GuiElement element)
+	{
+		Entry	entry	= entries.get(element);
+		if (entry != null && entry.hasId && entry.id == id)
+			unlink(entry);
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Removes entry from the chain of its id, freeing the slot of the id
+	// with the last entry.
+	private void unlink(Entry entry)
+	{
+		int	mask	= idKeys.length - 1;
+		int	slot;
+		for (slot = hash(entry.id) & mask; idHeads[slot] != null && idKeys[slot] != entry.id; slot = (slot + 1) & mask)
+			;
+		if (idHeads[slot] == null)				// not found: should never happen
+			return;
+		if (entry.prevSameId != null)
+			entry.prevSameId.nextSameId	= entry.nextSameId;
+		else
+			idHeads[slot]	= entry.nextSameId;
+		if (entry.nextSameId != null)
+			entry.nextSameId.prevSameId	= entry.prevSameId;
+		else
+			idTails[slot]	= entry.prevSameId;
+		entry.prevSameId	= entry.nextSameId	= null;
+		entry.hasId			= false;
+		if (idHeads[slot] != null)
+			return;
+		// shift back the following entries of the probe sequence into the hole
+		idTails[slot]	= null;
+		idCount--;
+		for (int next = (slot + 1) & mask; idHeads[next] != null; next = (next + 1) & mask)
+		{
+			int	home	= hash(idKeys[next]) & mask;
+			// move the entry if its home slot is not between the hole and its slot (cyclically)
+			if ( ((next - home) & mask) >= ((next - slot) & mask) )
+			{
+				idKeys[slot]	= idKeys[next];
+				idHeads[slot]	= idHeads[next];
+				idTails[slot]	= idTails[next];
+				idHeads[next]	= null;
+				idTails[next]	= null;
+				slot	= next;
+			}
+		}
+	}
+
+	private void resize(int capacity)
+	{
+		int[]			oldKeys		= idKeys;
+		Entry[]			oldHeads	= idHeads;
+		Entry[]			oldTails	= idTails;
+		idKeys		= new int[capacity];
+		idHeads		= new Entry[capacity];
+		idTails		= new Entry[capacity];
+		int				mask		= capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldHeads[i] == null)
+				continue;
+			int	slot;
+			for (slot = hash(oldKeys[i]) & mask; idHeads[slot] != null; slot = (slot + 1) & mask)
+				;
+			idKeys[slot]	= oldKeys[i];
+			idHeads[slot]	= oldHeads[i];
+			idTails[slot]	= oldTails[i];
+		}
+	}
+
+	// Spreads the bits of an id, as ids are often small consecutive numbers.
+	private static int hash(int h)
+	{
+		h	*= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	static final class Entry
+	{
+		final	GuiElement	element;
+		GuiLayout	owner;
+		int			index;
+		// the id of element, if hasId, and the other entries with the same id
+		int			id;
+		boolean		hasId;
+		Entry		prevSameId, nextSameId;
+
+		Entry(GuiElement element, GuiLayout owner, int index)
+		{
+			this.element	= element;
+			this.owner		= owner;
+			this.index		= index;
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	PlayerDirectory.java - An indexed directory of the players known to the world.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import com.vistamaresoft.rwgui.RWGui.Pair;
+
+/**
+ * The directory of the players known to the world, as returned by
+ * RWGui.getPlayers().
+ * <p>Beside the list of DB ID / name pairs sorted by name, the directory keeps
+ * two open-addressing hash indices, one from DB ID to name and one from name
+ * to DB ID, both keyed on primitive values, so that looking a player up costs
+ * the same regardless of the number of players known to the world.
+ * <p>For type-ahead searches, the directory also has a prefix index: the
+ * positions of the players sorted by lower-case name, in which the players
+ * whose names start with a given prefix (ignoring case) make a contiguous
+ * range, found with two binary searches. The index is only built the first
+ * time it is needed.
+ * <p>A directory is immutable once created: adding a player creates a new
+ * directory, so that a directory can be freely shared among threads.
+ */
+final class PlayerDirectory
+{
+	private static final	int		MIN_CAPACITY	= 16;
+
+	//
+	// FIELDS
+	//
+	private final	List<Pair<Integer,String>>	players;
+	// DB ID -> name index; a null name marks a free slot
+	private final	int[]		idKeys;
+	private final	String[]	idNames;
+	// name -> DB ID index; a null name marks a free slot
+	private final	String[]	nameKeys;
+	private final	int[]		nameIds;
+	private final	int			mask;
+	private final	int			maxNameWidth;	// at font size 1000
+	private volatile	PrefixIndex	prefixIndex;
+
+	/**
+	 * Creates a new directory from a list of DB ID / name pairs, which is
+	 * expected to be already sorted by name.
+	 * @param	players	the sorted list of players; the list is copied and
+	 *					can be re-used by the caller.
+	 */
+	PlayerDirectory(List<Pair<Integer,String>> players)
+	{
+		this(new ArrayList<>(players), capacityFor(players.size()));
+	}
+
+	/**
+	 * Creates an empty directory.
+	 */
+	PlayerDirectory()
+	{
+		this(new ArrayList<Pair<Integer,String>>(), MIN_CAPACITY);
+	}
+
+	// Creates a directory owning the given list, indexing all its players.
+	private PlayerDirectory(ArrayList<Pair<Integer,String>> players, int capacity)
+	{
+		this.players	= Collections.unmodifiableList(players);
+		idKeys		= new int[capacity];
+		idNames		= new String[capacity];
+		nameKeys	= new String[capacity];
+		nameIds		= new int[capacity];
+		mask		= capacity - 1;
+		int	maxWidth	= 0;
+		for (Pair<Integer,String> player : players)
+		{
+			index(player.getL(), player.getR());
+			if (player.getR() != null)
+				maxWidth	= Math.max(maxWidth, TextMetrics.unscaledWidth(player.getR()));
+		}
+		maxNameWidth	= maxWidth;
+	}
+
+	// Creates a directory owning the given list, with a copy of the indices of
+	// another directory of the same capacity.
+	private PlayerDirectory(ArrayList<Pair<Integer,String>> players, PlayerDirectory from, int maxNameWidth)
+	{
+		this.players	= Collections.unmodifiableList(players);
+		idKeys		= from.idKeys.clone();
+		idNames		= from.idNames.clone();
+		nameKeys	= from.nameKeys.clone();
+		nameIds		= from.nameIds.clone();
+		mask		= from.mask;
+		this.maxNameWidth	= maxNameWidth;
+	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Returns the players in the directory, sorted by name.
+	 * @return	a read-only List of DB ID/name player data Pair's.
+	 */
+	List<Pair<Integer,String>> getPlayers()
+	{
+		return players;
+	}
+
+	/**
+	 * Returns the width of the widest player name.
+	 * @param	fontSize	the size of the font used to display the names
+	 * @return	the width in pixels.
+	 */
+	int getMaxNameWidth(int fontSize)
+	{
+		return (int)Math.ceil(maxNameWidth * fontSize / 1000.0);
+	}
+
+	/**
+	 * Returns the position in the sorted player list of the player with the
+	 * given DB ID.
+	 * @param	dbId	the DB ID to look for
+	 * @return	the position of the player or -1 if no player has that DB ID.
+	 */
+	int indexOf(int dbId)
+	{
+		String	name	= getName(dbId);
+		if (name == null)
+			return -1;
+		// scan the players with the same name, from the first of them
+		int	size	= players.size();
+		for (int i = lowerBound(name); i < size; i++)
+		{
+			Pair<Integer,String>	player	= players.get(i);
+			if (!name.equals(player.getR()))
+				break;
+			if (player.getL() == dbId)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the position, in the prefix order, of the first player whose
+	 * name starts with prefix, ignoring case.
+	 * <p>The players matching prefix are those from prefixStart(prefix),
+	 * included, to prefixEnd(prefix), excluded.
+	 * @param	prefix	the prefix to look for
+	 * @return	the start of the matching range, in the prefix order.
+	 */
+	int prefixStart(String prefix)
+	{
+		PrefixIndex	index	= getPrefixIndex();
+		String		folded	= prefix.toLowerCase(Locale.ROOT);
+		int	lo		= 0;
+		int	hi		= index.names.length;
+		while (lo < hi)
+		{
+			int	mid	= (lo + hi) >>> 1;
+			if (index.names[mid].compareTo(folded) < 0)
+				lo	= mid + 1;
+			else
+				hi	= mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the position, in the prefix order, after the last player whose
+	 * name starts with prefix, ignoring case.
+	 * @param	prefix	the prefix to look for
+	 * @return	the end (excluded) of the matching range, in the prefix order.
+	 */
+	int prefixEnd(String prefix)
+	{
+		PrefixIndex	index	= getPrefixIndex();
+		String		folded	= prefix.toLowerCase(Locale.ROOT);
+		int	lo		= 0;
+		int	hi		= index.names.length;
+		while (lo < hi)
+		{
+			int		mid		= (lo + hi) >>> 1;
+			String	name	= index.names[mid];
+			if (name.startsWith(folded) || name.compareTo(folded) < 0)
+				lo	= mid + 1;
+			else
+				hi	= mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the player at the given position in the prefix order.
+	 * @param	prefixPos	the position in the prefix order
+	 * @return	the DB ID / name pair of the player.
+	 */
+	Pair<Integer,String> getInPrefixOrder(int prefixPos)
+	{
+		return players.get(getPrefixIndex().order[prefixPos]);
+	}
+
+	/**
+	 * Returns the position in the prefix order of the player at the given
+	 * position in the name order.
+	 * @param	index	the position in the name order, as returned by indexOf()
+	 * @return	the position of the same player in the prefix order.
+	 */
+	int toPrefixOrder(int index)
+	{
+		return getPrefixIndex().rank[index];
+	}
+
+	/**
+	 * Returns the name of the player with the given DB ID.
+	 * @param	dbId	the DB ID to look for
+	 * @return	the player name or null if no player has that DB ID.
+	 */
+	String getName(int dbId)
+	{
+		for (int slot = hash(dbId) & mask; ; slot = (slot + 1) & mask)
+		{
+			String	name	= idNames[slot];
+			if (name == null || idKeys[slot] == dbId)
+				return name;
+		}
+	}
+
+	/**
+	 * Returns the DB ID of the (first, in sort order) player with the given name.
+	 * @param	name	the name to look for
+	 * @return	the DB ID of the player or 0 if no player has that name.
+	 */
+	int getDbId(String name)
+	{
+		if (name == null)
+			return 0;
+		for (int slot = hash(name.hashCode()) & mask; ; slot = (slot + 1) & mask)
+		{
+			String	key		= nameKeys[slot];
+			if (key == null)
+				return 0;
+			if (key.equals(name))
+				return nameIds[slot];
+		}
+	}
+
+	/**
+	 * Returns a new directory made of this directory plus a new player,
+	 * inserted at its place in the name sort order.
+	 * <p>If a player with the same DB ID is already in the directory, this
+	 * directory itself is returned.
+	 * @param	dbId	the DB ID of the new player
+	 * @param	name	the name of the new player
+	 * @return	the new directory.
+	 */
+	PlayerDirectory withPlayer(int dbId, String name)
+	{
+		if (name == null || getName(dbId) != null)
+			return this;
+		// insert after any player with the same name
+		int	lo		= upperBound(name);
+		ArrayList<Pair<Integer,String>>	newPlayers	= new ArrayList<>(players.size() + 1);
+		newPlayers.addAll(players);
+		newPlayers.add(lo, new Pair<>(dbId, name));
+		int	capacity	= capacityFor(newPlayers.size());
+		if (capacity != idKeys.length)
+			return new PlayerDirectory(newPlayers, capacity);
+		PlayerDirectory	newDir	= new PlayerDirectory(newPlayers, this,
+				Math.max(maxNameWidth, TextMetrics.unscaledWidth(name)));
+		newDir.index(dbId, name);
+		return newDir;
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Returns the position of the first player whose name is not before name
+	// in the sort order (null names sort before any other).
+	private int lowerBound(String name)
+	{
+		int	lo		= 0;
+		int	hi		= players.size();
+		while (lo < hi)
+		{
+			int	mid	= (lo + hi) >>> 1;
+			String	midName	= players.get(mid).getR();
+			if (midName == null || midName.compareTo(name) < 0)
+				lo	= mid + 1;
+			else
+				hi	= mid;
+		}
+		return lo;
+	}
+
+	// Returns the position of the first player whose name is after name in
+	// the sort order.
+	private int upperBound(String name)
+	{
+		int	lo		= 0;
+		int	hi		= players.size();
+		while (lo < hi)
+		{
+			int	mid	= (lo + hi) >>> 1;
+			String	midName	= players.get(mid).getR();
+			if (midName == null || midName.compareTo(name) <= 0)
+				lo	= mid + 1;
+			else
+				hi	= mid;
+		}
+		return lo;
+	}
+
+	// Returns the prefix index, building it if not built yet. Two threads may
+	// race to build it, but they would build identical indices.
+	private PrefixIndex getPrefixIndex()
+	{
+		PrefixIndex	index	= prefixIndex;
+		if (index == null)
+			prefixIndex	= index	= new PrefixIndex(players);
+		return index;
+	}
+
+	private static int capacityFor(int size)
+	{
+		int	capacity	= MIN_CAPACITY;
+		while (capacity < size * 2)
+			capacity	<<= 1;
+		return capacity;
+	}
+
+	// Adds a player to both indices. Players with a null name cannot be
+	// looked up and are not indexed. For duplicate names, the first one
+	// indexed (i.e. the first in sort order) wins.
+	// Only to be used while the directory is being created.
+	private void index(int dbId, String name)
+	{
+		if (name == null)
+			return;
+		int	slot;
+		for (slot = hash(dbId) & mask; idNames[slot] != null; slot = (slot + 1) & mask)
+			if (idKeys[slot] == dbId)
+				break;
+		idKeys[slot]	= dbId;
+		idNames[slot]	= name;
+		for (slot = hash(name.hashCode()) & mask; nameKeys[slot] != null; slot = (slot + 1) & mask)
+			if (nameKeys[slot].equals(name))
+				return;
+		nameKeys[slot]	= name;
+		nameIds[slot]	= dbId;
+	}
+
+	// Spreads the bits of a hash code, as consecutive DB ID's would otherwise
+	// crowd into consecutive slots.
+	private static int hash(int h)
+	{
+		h	*= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The players sorted by lower-case name (null names are treated as empty).
+	 */
+	private static final class PrefixIndex
+	{
+		final	String[]	names;	// the lower-case names, sorted
+		final	int[]		order;	// the position in the player list of each name
+		final	int[]		rank;	// the inverse of order
+
+		PrefixIndex(List<Pair<Integer,String>> players)
+		{
+			int			size	= players.size();
+			String[]	folded	= new String[size];
+			Integer[]	sorted	= new Integer[size];
+			for (int i = 0; i < size; i++)
+			{
+				String	name	= players.get(i).getR();
+				folded[i]		= name != null ? name.toLowerCase(Locale.ROOT) : "";
+				sorted[i]		= i;
+			}
+			Arrays.sort(sorted, (a, b) -> folded[a].compareTo(folded[b]));
+			names	= new String[size];
+			order	= new int[size];
+			rank	= new int[size];
+			for (int i = 0; i < size; i++)
+			{
+				int	pos		= sorted[i];
+				names[i]	= folded[pos];
+				order[i]	= pos;
+				rank[pos]	= i;
+			}
+		}
+	}
+}
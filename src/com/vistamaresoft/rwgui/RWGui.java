@@ -16,11 +16,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import net.risingworld.api.Plugin;
 import net.risingworld.api.database.WorldDatabase;
 import net.risingworld.api.events.EventMethod;
 import net.risingworld.api.events.Listener;
 import net.risingworld.api.events.player.PlayerConnectEvent;
+import net.risingworld.api.events.player.PlayerDisconnectEvent;
+import net.risingworld.api.events.player.gui.PlayerGuiElementClickEvent;
+import net.risingworld.api.events.player.gui.PlayerGuiInputEvent;
 import net.risingworld.api.gui.GuiElement;
 import net.risingworld.api.gui.GuiImage;
 import net.risingworld.api.gui.GuiLabel;
@@ -98,6 +109,7 @@ public class RWGui extends Plugin implements Listener
 	// Id's used internally
 	protected static final	int	PGUP_ID			= -2;
 	protected static final	int	PGDN_ID			= -3;
+	protected static final	int	FILTER_ID		= -4;
 
 	// STANDARD RETURN CODES
 	/** The operation has been successful. */
@@ -114,7 +126,9 @@ public class RWGui extends Plugin implements Listener
 	//
 	// FIELDS
 	//
-	private static final	ImageInformation[]	stockIcons		= new ImageInformation[ICN_MAX-ICN_MIN+1];
+	// loaded stock icons; an element is only set once, when its icon is loaded
+	private static final	AtomicReferenceArray<ImageInformation>	stockIcons	=
+			new AtomicReferenceArray<>(ICN_MAX-ICN_MIN+1);
 	private static final	String[]			stockIconPaths =
 			{	"/assets/arrowDown.png", "/assets/arrowLeft.png",
 				"/assets/arrowRight.png", "/assets/arrowUp.png",
@@ -123,7 +137,15 @@ public class RWGui extends Plugin implements Listener
 				"/assets/radioCheck.png", "/assets/radioUncheck.png" 
 			};
 	protected	static	String				pluginPath;
-	private		static	List<Pair<Integer,String>>	users;
+	// stock icon load metrics
+	private		static	volatile	int		stockIconsLoaded;
+	private		static	volatile	long	stockIconsLoadTime;	// in nanoseconds
+	// the current player directory snapshot; never modified, only replaced
+	private	static final	AtomicReference<PlayerDirectory>	directory	= new AtomicReference<>();
+	private		static	CompletableFuture<PlayerDirectory>	directoryLoad;
+	private		static	ExecutorService		directoryLoader;
+	// new players connected while the directory was being loaded
+	private	static final	ConcurrentLinkedQueue<Pair<Integer,String>>	pendingPlayers	= new ConcurrentLinkedQueue<>();
 
 	//********************
 	// EVENTS
@@ -139,19 +161,66 @@ public class RWGui extends Plugin implements Listener
 	public void onEnable()
 	{
 		registerEventListener(this);
+		loadStockIcons();
+		GuiExecutor.start();
 		System.out.println("RWGui "+version+" enabled successfully!");
 	}
 	@Override
 	public void onDisable()
 	{
 		unregisterEventListener(this);
+		GuiExecutor.stop();
+		GuiWindowCache.clear();
+		synchronized(RWGui.class)
+		{
+			// fail any load still pending, so that nobody waits for it forever
+			if (directoryLoad != null)
+			{
+				directoryLoad.cancel(false);
+				directoryLoad	= null;
+			}
+			if (directoryLoader != null)
+			{
+				directoryLoader.shutdownNow();
+				directoryLoader	= null;
+			}
+		}
 		System.out.println("RWGui "+version+" disabled successfully!");
 	}
 	@EventMethod
 	public void onConnect(PlayerConnectEvent event)
 	{
+		// a new player is added to a new directory snapshot, if already loaded;
+		// if not, it is kept aside, in case the load already read the DB.
 		if (event.isNewPlayer())
-			users = null;
+		{
+			Player	player	= event.getPlayer();
+			pendingPlayers.add(new Pair<>(player.getDbID(), player.getName()));
+			addPendingPlayers();
+		}
+		// warm the directory up in background, so that it is ready
+		// by the time some plug-in needs it
+		if (directory.get() == null)
+			startDirectoryLoad(this);
+	}
+	@EventMethod
+	public void onDisconnect(PlayerDisconnectEvent event)
+	{
+		WindowRouter.removePlayer(event.getPlayer());
+		GuiBatch.removePlayer(event.getPlayer());
+		GuiWindowCache.removePlayer(event.getPlayer());
+	}
+	// GUI events are routed from here to the windows they are meant for,
+	// rather than having each window listening to all of them.
+	@EventMethod
+	public void onGuiClick(PlayerGuiElementClickEvent event)
+	{
+		WindowRouter.routeClick(event);
+	}
+	@EventMethod
+	public void onGuiInput(PlayerGuiInputEvent event)
+	{
+		WindowRouter.routeTextEntry(event);
 	}
 
 	//********************
@@ -169,17 +238,105 @@ public class RWGui extends Plugin implements Listener
 	{
 		if (iconId < ICN_MIN || iconId > ICN_MAX)
 			return ERR_INVALID_PARAMETER;
-		if (stockIcons[iconId] == null)
-		{
-			stockIcons[iconId]	= new ImageInformation(pluginPath + stockIconPaths[iconId]);
-		}
-		image.setImage(stockIcons[iconId]);
+		ImageInformation	icon	= stockIcons.get(iconId);
+		if (icon == null)						// only if not pre-loaded yet
+			icon	= loadStockIcon(iconId);
+		IconRegistry.release(image);			// in case it had a registered image
+		image.setImage(icon);
 		return ERR_SUCCESS;
 	}
 
 	/**
-		Returns (an estimate of) the width of a GuiLabel text. Assumes the
-		default font is used.
+		Sets an image file into a GuiImage element, through the icon registry
+		shared by all plug-ins.
+
+		Each image file is loaded only once, however many GuiImage's use it,
+		and identical files at different paths share the same image. The
+		image is kept as long as at least one GuiImage uses it; when no longer
+		used, it can be discarded if the registry memory limit is exceeded.
+		<p>A GuiImage stops using its image when another image (or a stock
+		icon) is set into it, when releaseImage() is called for it or when
+		the GuiLayout it belongs to is freed.
+
+		@param	image	the GuiImage to set the image into
+		@param	path	the full path of the image file, typically the
+						plug-in path (Plugin.getPath()) followed by the
+						relative path of an asset.
+		@return	ERR_MISSING_RESOURCE if the file cannot be read; ERR_SUCCESS
+				otherwise.
+	*/
+	public static int setImage(GuiImage image, String path)
+	{
+		if (image == null)
+			return ERR_INVALID_PARAMETER;
+		ImageInformation	icon	= IconRegistry.acquire(image, path);
+		if (icon == null)
+			return ERR_MISSING_RESOURCE;
+		image.setImage(icon);
+		return ERR_SUCCESS;
+	}
+
+	/**
+		Tells the icon registry that a GuiImage no longer uses the image set
+		into it with setImage(GuiImage, String). Calling this method for a
+		GuiImage with a stock icon or with no registered image does nothing.
+
+		@param	image	the GuiImage no longer in use
+	*/
+	public static void releaseImage(GuiImage image)
+	{
+		IconRegistry.release(image);
+	}
+
+	/**
+		Sets the maximum total size (in bytes) of the images kept by the
+		icon registry while not used by any GuiImage. Default is 16 MB.
+		The size of an image is the memory it takes once decoded (width x
+		height x 4 bytes), not the size of its file.
+
+		@param	bytes	the new limit, in bytes
+	*/
+	public static void setImageMemoryLimit(long bytes)
+	{
+		IconRegistry.setMemoryLimit(bytes);
+	}
+
+	/**
+		Returns the total size (in bytes) of the images currently kept by the
+		icon registry, stock icons included, as decoded images (width x
+		height x 4 bytes each).
+
+		@return	the size of the registered images, in bytes.
+	*/
+	public static long getImageMemoryUsed()
+	{
+		return IconRegistry.getMemoryUsed();
+	}
+
+	/**
+	 * Returns the number of stock icons loaded so far. All the stock icons
+	 * are loaded when RWGui is enabled.
+	 * @return	the number of loaded stock icons.
+	 */
+	public static int getStockIconsLoaded()
+	{
+		return stockIconsLoaded;
+	}
+
+	/**
+	 * Returns the total time spent loading the stock icons.
+	 * @return	the total load time, in nanoseconds.
+	 */
+	public static long getStockIconsLoadTime()
+	{
+		return stockIconsLoadTime;
+	}
+
+	/**
+		Returns the width of a GuiLabel text, computed from the widths of the
+		single glyphs of the default font; for a text with several lines,
+		returns the width of the widest line. Assumes the default font is used.
+		<p>Widths are remembered, once computed.
 
 		@param	text		the text to measure
 		@param	fontSize	the size of the font used
@@ -188,7 +345,7 @@ public class RWGui extends Plugin implements Listener
 	*/
 	public static float getTextWidth(String text, float fontSize)
 	{
-		return (fontSize * RWGui.AVG_CHAR_WIDTH1 * text.length());
+		return TextMetrics.width(text, fontSize);
 	}
 
 	/**
@@ -200,26 +357,30 @@ public class RWGui extends Plugin implements Listener
 	*/
 	public static Vector2i getElementSizes(GuiElement element)
 	{
-		Vector2i	sizes	= new Vector2i();
+		return getElementSizes(element, new Vector2i());
+	}
+
+	/**
+		Stores the x, y sizes of a GuiElement into a Vector2i supplied by the
+		caller. Same as getElementSizes(GuiElement), but allocates nothing:
+		the sizes of GuiLabel texts are remembered, once measured.
+
+		@param	element	the element to measure
+		@param	sizes	the Vector2i into which to store the x and y sizes of
+						the element; both are set to 0 if element is null.
+		@return	sizes.
+	*/
+	public static Vector2i getElementSizes(GuiElement element, Vector2i sizes)
+	{
+		if (element instanceof GuiLabel)
+			return TextMetrics.measure(((GuiLabel) element).getText(), ((GuiLabel) element).getFontSize(), sizes);
 		if (element != null)
 		{
-			if (element instanceof GuiLabel)
-			{
-				String[]	lines		= ((GuiLabel) element).getText().split("\n");
-				int			fontSize	= ((GuiLabel) element).getFontSize();
-				int			maxLength	= 0;
-				for (String line : lines)
-					if (line.length() > maxLength)
-						maxLength		= line.length();
-				sizes.x					= (int)(fontSize * RWGui.AVG_CHAR_WIDTH1 * maxLength);
-				sizes.y					=  fontSize * lines.length;
-			}
-			else
-			{
-				sizes.y	= (int)element.getHeight();
-				sizes.x	= (int)element.getWidth();
-			}
+			sizes.y	= (int)element.getHeight();
+			sizes.x	= (int)element.getWidth();
 		}
+		else
+			sizes.x	= sizes.y	= 0;
 		return sizes;
 	}
 
@@ -234,14 +395,7 @@ public class RWGui extends Plugin implements Listener
 	 */
 	public static String getPlayerNameFromId(Plugin plugin, int dbId)
 	{
-		if (users == null)
-			getPlayers(plugin);
-		for(Pair<Integer,String> user : users)
-		{
-			if (user.getL() == dbId)
-				return user.getR();
-		}
-		return null;
+		return getDirectory(plugin).getName(dbId);
 	}
 
 	/**
@@ -255,14 +409,7 @@ public class RWGui extends Plugin implements Listener
 	 */
 	public static int getPlayerDbIdFromName(Plugin plugin, String name)
 	{
-		if (users == null)
-			getPlayers(plugin);
-		for(Pair<Integer,String> user : users)
-		{
-			if (user.getR().equals(name))
-				return user.getL();
-		}
-		return 0;
+		return getDirectory(plugin).getDbId(name);
 	}
 
 	/**
@@ -270,7 +417,14 @@ public class RWGui extends Plugin implements Listener
 	 * least once).
 	 * <p>The list is a List of Pair's each made of an int and a String, the
 	 * integer being the DB ID of player and the String his name of the player.
-	 * <p>The list is sorted by names, in native alphabetical order.
+	 * <p>The list is sorted by names, in native alphabetical order. It is
+	 * shared by all the callers, without copying it, and it is read-only:
+	 * its Pair's shall not be changed either. Callers needing to change the
+	 * list shall copy it themselves (which costs a time and a memory
+	 * proportional to the number of players).
+	 * <p>The first time it is called, this method may have to query the World
+	 * database and block the calling thread until the list is loaded; use
+	 * getPlayersAsync() to avoid this.
 	 * @param	plugin	The plug-in making the request. This is only needed to
 	 *					access the relevant World database and has no side
 	 *					effects on the plug-in itself.
@@ -278,26 +432,60 @@ public class RWGui extends Plugin implements Listener
 	 */
 	public static List<Pair<Integer,String>> getPlayers(Plugin plugin)
 	{
-		if (users != null)
-			return users;
-		users	= new ArrayList<>();
-		WorldDatabase	db = plugin.getWorldDatabase();
-		try(ResultSet result = db.executeQuery("SELECT `ID`,`Name` FROM `Player` ORDER BY `Name`ASC"))
-		{
-			while(result.next())
+		return getDirectory(plugin).getPlayers();
+	}
+
+	/**
+	 * Returns, without blocking, the list of players known to the World (i.e.
+	 * who connected at least once).
+	 * <p>If the list has not been loaded yet, it is loaded from the World
+	 * database in background and the returned future is completed <b>in the
+	 * game thread</b> once the list is available; in this case, the
+	 * consumer plug-in can safely display GUI elements from its thenAccept()
+	 * (or similar) continuation.
+	 * <p>See getPlayers() for the list contents.
+	 * @param	plugin	The plug-in making the request. This is only needed to
+	 *					access the relevant World database and has no side
+	 *					effects on the plug-in itself.
+	 * @return	a CompletableFuture to the List of DB ID/name player data Pair's.
+	 */
+	public static CompletableFuture<List<Pair<Integer,String>>> getPlayersAsync(Plugin plugin)
+	{
+		PlayerDirectory	dir	= directory.get();
+		if (dir != null)
+			return CompletableFuture.completedFuture(dir.getPlayers());
+		CompletableFuture<List<Pair<Integer,String>>>	result	= new CompletableFuture<>();
+		startDirectoryLoad(plugin).whenComplete((loaded, e) -> GuiExecutor.post(() ->
 			{
-				int		id		= result.getInt(1);
-				String	name	= result.getString(2);
-				Pair<Integer,String>	item	= new Pair<>(id, name);
-				users.add(item);
-			}
-			result.close();
-		}
-		catch(SQLException e)
-		{
-			//on errors, do nothing and simply use what we got.
-		}
-		return users;
+				if (e != null)
+					result.completeExceptionally(e);
+				else
+					result.complete(installDirectory(loaded).getPlayers());
+			} ));
+		return result;
+	}
+
+	/**
+		Returns the window on top of the 'display stack' of a player.
+
+		@param	player	the player whose stack to query
+		@return	the top GuiModalWindow or null if the player has no window displayed.
+	*/
+	public static GuiModalWindow getTopWindow(Player player)
+	{
+		return WindowRouter.getTop(player);
+	}
+
+	/**
+		Returns the number of windows in the 'display stack' of a player,
+		covered windows included.
+
+		@param	player	the player whose stack to query
+		@return	the stack depth; 0 if the player has no window displayed.
+	*/
+	public static int getWindowStackDepth(Player player)
+	{
+		return WindowRouter.getDepth(player);
 	}
 
 	/**
@@ -340,4 +528,150 @@ public class RWGui extends Plugin implements Listener
 	// INTERNAL HELPER METHODS
 	//********************
 
+	/**
+	 * Returns the directory of the players known to the World, loading it
+	 * from the World database if not available yet.
+	 */
+	static PlayerDirectory getDirectory(Plugin plugin)
+	{
+		PlayerDirectory	dir	= directory.get();
+		if (dir == null)
+		{
+			// if a background load is in progress, wait for it rather than
+			// querying the DB a second time
+			CompletableFuture<PlayerDirectory>	load;
+			synchronized(RWGui.class)
+			{
+				load	= directoryLoad;
+			}
+			PlayerDirectory	loaded	= null;
+			if (load != null)
+			{
+				try
+				{
+					loaded	= load.join();
+				}
+				catch (CompletionException | CancellationException e)
+				{
+					clearDirectoryLoad(load);	// failed: query the DB directly instead
+				}
+			}
+			dir		= installDirectory(loaded != null ? loaded : loadDirectory(plugin));
+		}
+		return dir;
+	}
+
+	// Loads all the stock icons not loaded yet.
+	private static void loadStockIcons()
+	{
+		for (int iconId = ICN_MIN; iconId <= ICN_MAX; iconId++)
+			if (stockIcons.get(iconId) == null)
+				loadStockIcon(iconId);
+	}
+
+	// Loads a stock icon, unless another thread already did it, and returns it.
+	private static synchronized ImageInformation loadStockIcon(int iconId)
+	{
+		ImageInformation	icon	= stockIcons.get(iconId);
+		if (icon == null)
+		{
+			long	start	= System.nanoTime();
+			icon		= new ImageInformation(pluginPath + stockIconPaths[iconId]);
+			IconRegistry.pin(pluginPath + stockIconPaths[iconId], icon);
+			stockIconsLoadTime	+= System.nanoTime() - start;
+			stockIconsLoaded++;
+			stockIcons.set(iconId, icon);
+		}
+		return icon;
+	}
+
+	// Starts loading the directory in background, unless a load is already in progress.
+	private static synchronized CompletableFuture<PlayerDirectory> startDirectoryLoad(Plugin plugin)
+	{
+		if (directoryLoad == null)
+		{
+			if (directoryLoader == null)
+				directoryLoader	= Executors.newSingleThreadExecutor(task ->
+					{
+						Thread	thread	= new Thread(task, "RWGui player loader");
+						thread.setDaemon(true);
+						return thread;
+					} );
+			CompletableFuture<PlayerDirectory>	load	=
+					CompletableFuture.supplyAsync(() -> loadDirectory(plugin), directoryLoader);
+			directoryLoad	= load;
+			// publish the result on the game thread; a failed load is forgotten,
+			// so that the next request tries again
+			load.whenComplete((loaded, e) ->
+				{
+					if (e != null)
+						clearDirectoryLoad(load);
+					else
+						GuiExecutor.post(() -> installDirectory(loaded));
+				} );
+		}
+		return directoryLoad;
+	}
+
+	// Forgets load, if it is still the current directory load.
+	private static synchronized void clearDirectoryLoad(CompletableFuture<PlayerDirectory> load)
+	{
+		if (directoryLoad == load)
+			directoryLoad	= null;
+	}
+
+	// Makes a loaded directory the current one, if none is current yet, adding any
+	// player connected in the meantime, and returns the current directory.
+	private static PlayerDirectory installDirectory(PlayerDirectory loaded)
+	{
+		if (directory.compareAndSet(null, loaded))
+		{
+			synchronized(RWGui.class)
+			{
+				directoryLoad	= null;
+			}
+		}
+		addPendingPlayers();
+		return directory.get();
+	}
+
+	// Adds the pending new players to the current directory, if any, publishing
+	// a new snapshot for each. If there is no directory yet, the players are
+	// left pending until one is installed. As adding a player already in the
+	// directory has no effect, it does no harm if two threads race to add the
+	// same player.
+	private static void addPendingPlayers()
+	{
+		Pair<Integer,String>	player;
+		while (directory.get() != null && (player = pendingPlayers.poll()) != null)
+		{
+			PlayerDirectory	dir;
+			do
+				dir		= directory.get();
+			while (!directory.compareAndSet(dir, dir.withPlayer(player.getL(), player.getR())));
+		}
+	}
+
+	private static PlayerDirectory loadDirectory(Plugin plugin)
+	{
+		List<Pair<Integer,String>>	players	= new ArrayList<>();
+		WorldDatabase	db = plugin.getWorldDatabase();
+		try(ResultSet result = db.executeQuery("SELECT `ID`,`Name` FROM `Player` ORDER BY `Name`ASC"))
+		{
+			while(result.next())
+			{
+				int		id		= result.getInt(1);
+				String	name	= result.getString(2);
+				Pair<Integer,String>	item	= new Pair<>(id, name);
+				players.add(item);
+			}
+			result.close();
+		}
+		catch(SQLException e)
+		{
+			//on errors, do nothing and simply use what we got.
+		}
+		return new PlayerDirectory(players);
+	}
+
 }
@@ -0,0 +1,185 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	TextMetrics.java - Measures (and remembers the measures of) GuiLabel texts.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.risingworld.api.utils.Vector2i;
+
+/**
+ * The text measurement service used by RWGui.getTextWidth() and
+ * RWGui.getElementSizes().
+ * <p>Texts are measured glyph by glyph, with a table of the advance widths
+ * of the default font, in thousandths of the font size. The table covers the
+ * ASCII and Latin-1 ranges; any other character is given an average width.
+ * <p>The sizes of each text are computed scanning the text once, without
+ * allocating anything, and are kept in a least-recently-used cache keyed by
+ * text, so that measuring the same texts again and again, as layout passes
+ * do, only costs a look-up. As sizes are proportional to the font size, the
+ * cache stores them for a font size of 1000 and the same entry serves any
+ * font size.
+ * <p>All the methods are thread-safe.
+ */
+final class TextMetrics
+{
+	private static final	int		CACHE_SIZE		= 1024;
+	// the width of the glyphs not in the table, in thousandths of the font size
+	private static final	int		DEFAULT_WIDTH	= (int)(RWGui.AVG_CHAR_WIDTH1 * 1000);
+	// the advance width of each glyph from U+0000 to U+00FF, in thousandths of the font size
+	private static final	short[]	WIDTHS			=
+		{
+			  0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,	// U+0000
+			  0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,	// U+0010
+			278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,	// U+0020
+			556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,	// U+0030
+		   1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,	// U+0040
+			667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,	// U+0050
+			333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,	// U+0060
+			556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584,   0,	// U+0070
+			  0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,	// U+0080
+			  0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,   0,	// U+0090
+			278, 333, 556, 556, 556, 556, 260, 556, 333, 737, 370, 556, 584, 333, 737, 333,	// U+00A0
+			400, 584, 333, 333, 333, 556, 537, 278, 333, 333, 365, 556, 834, 834, 834, 611,	// U+00B0
+			667, 667, 667, 667, 667, 667,1000, 722, 667, 667, 667, 667, 278, 278, 278, 278,	// U+00C0
+			722, 722, 778, 778, 778, 778, 778, 584, 778, 722, 722, 722, 722, 667, 667, 611,	// U+00D0
+			556, 556, 556, 556, 556, 556, 889, 500, 556, 556, 556, 556, 278, 278, 278, 278,	// U+00E0
+			556, 556, 556, 556, 556, 556, 556, 584, 611, 556, 556, 556, 556, 500, 556, 500,	// U+00F0
+		};
+
+	//
+	// FIELDS
+	//
+	// text -> packed width (of the widest line) and number of lines, at font size 1000
+	private static final	Map<String,Long>	cache	= new LinkedHashMap<String,Long>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,Long> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private TextMetrics()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Measures a text as displayed by a GuiLabel with the default font.
+	 * @param	text		the text to measure; may contain several lines
+	 *						separated by '\n'
+	 * @param	fontSize	the size of the font used
+	 * @param	out			the Vector2i into which to store the text width (x)
+	 *						and height (y), in pixels
+	 * @return	out.
+	 */
+	static Vector2i measure(String text, int fontSize, Vector2i out)
+	{
+		long	sizes	= lookup(text);
+		out.x	= (int)Math.ceil((sizes >>> 32) * fontSize / 1000.0);
+		out.y	= (int)sizes * fontSize;
+		return out;
+	}
+
+	/**
+	 * Returns the width of a text as displayed by a GuiLabel with the default
+	 * font; for a text with several lines, the width of the widest line.
+	 * @param	text		the text to measure
+	 * @param	fontSize	the size of the font used
+	 * @return	the text width in pixels.
+	 */
+	static float width(String text, float fontSize)
+	{
+		return (lookup(text) >>> 32) * fontSize / 1000.0f;
+	}
+
+	/**
+	 * Returns the width of a single-line text at font size 1000, without
+	 * caching it. Useful to measure many texts which are not going to be
+	 * measured again soon.
+	 * @param	text	the text to measure
+	 * @return	the text width in thousandths of the font size.
+	 */
+	static int unscaledWidth(String text)
+	{
+		return lineWidth(text, 0, text.length());
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Returns the width and number of lines of a text at font size 1000,
+	// packed into a long (width in the upper 32 bits, lines in the lower 32 bits).
+	private static synchronized long lookup(String text)
+	{
+		Long	sizes	= cache.get(text);
+		if (sizes == null)
+		{
+			sizes	= compute(text);
+			cache.put(text, sizes);
+		}
+		return sizes;
+	}
+
+	// Scans the text for lines, without splitting it. As String.split("\n")
+	// did before, trailing empty lines are not counted.
+	private static long compute(String text)
+	{
+		int		length		= text.length();
+		int		lines		= length == 0 ? 1 : 0;
+		int		lineStart	= 0;
+		int		maxWidth	= 0;
+		int		newLines	= 0;		// new lines not followed by text (yet)
+		for (int i = 0; i <= length; i++)
+		{
+			if (i == length || text.charAt(i) == '\n')
+			{
+				if (i > lineStart)		// a non-empty line: count it with the empty ones before
+				{
+					lines		+= newLines + 1;
+					newLines	= 0;
+					int	width	= lineWidth(text, lineStart, i);
+					if (width > maxWidth)
+						maxWidth	= width;
+				}
+				else
+					newLines++;
+				lineStart	= i + 1;
+			}
+		}
+		return ((long)maxWidth << 32) | (lines & 0xFFFFFFFFL);
+	}
+
+	// Returns the width of the chars of text from start (included) to end
+	// (excluded), in thousandths of the font size.
+	private static int lineWidth(String text, int start, int end)
+	{
+		int		width	= 0;
+		for (int i = start; i < end; i++)
+		{
+			char	c	= text.charAt(i);
+			if (c < WIDTHS.length)				// ASCII and Latin-1: straight from the table
+				width	+= WIDTHS[c];
+			else
+			{
+				// a surrogate pair is a single glyph
+				if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1)))
+					i++;
+				width	+= DEFAULT_WIDTH;
+			}
+		}
+		return width;
+	}
+}
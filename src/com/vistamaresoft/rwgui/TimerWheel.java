@@ -0,0 +1,167 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	TimerWheel.java - A hashed timing wheel for all the RWGui timeouts.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.ArrayList;
+
+/**
+ * The scheduler of all the RWGui timeouts (message box auto-closing, ...).
+ * <p>Timeouts are kept in a hashed timing wheel turned by the GuiExecutor
+ * tick: tasks are run on the GUI (game) thread, with the resolution of
+ * the timer tick; scheduling and cancelling a timeout cost a constant time,
+ * whatever the number of pending timeouts, and no thread is created.
+ * <p>If RWGui is disabled, pending timeouts do not expire.
+ * <p>All the methods are thread-safe.
+ */
+final class TimerWheel
+{
+	// CONSTANTS
+	//
+	private static final	int		WHEEL_SIZE	= 512;			// a power of 2
+	private static final	int		WHEEL_MASK	= WHEEL_SIZE - 1;
+	private static final	long	TICK_NANOS	= (long)(GuiExecutor.TICK_INTERVAL * 1000000000.0);
+
+	//
+	// FIELDS
+	//
+	private static final	Timeout[]	slots		= new Timeout[WHEEL_SIZE];	// heads of the slot lists
+	private static			long		currentTick;
+	private static final	long		startNanos	= System.nanoTime();
+
+	private TimerWheel()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Schedules task to be run on the game thread once delayMillis
+	 * milliseconds have elapsed.
+	 * @param	delayMillis	the delay in milliseconds.
+	 * @param	task		the task to run.
+	 * @return	the Timeout, which can be used to cancel the task.
+	 */
+	static synchronized Timeout schedule(long delayMillis, Runnable task)
+	{
+		long	ticks		= Math.max(1, (delayMillis * 1000000L + TICK_NANOS - 1) / TICK_NANOS);
+		Timeout	timeout		= new Timeout(currentTick + ticks, task);
+		link(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Turns the wheel up to the current time and runs the expired tasks;
+	 * called once per tick from the game thread.
+	 */
+	static void tick()
+	{
+		ArrayList<Runnable>	expired	= null;
+		synchronized(TimerWheel.class)
+		{
+			long	nowTick	= (System.nanoTime() - startNanos) / TICK_NANOS;
+			// visit the slots of the elapsed ticks; after a long pause, each slot at most once
+			long	steps	= Math.min(nowTick - currentTick, WHEEL_SIZE);
+			for (long i = 1; i <= steps; i++)
+			{
+				Timeout	timeout	= slots[(int)((currentTick + i) & WHEEL_MASK)];
+				while (timeout != null)
+				{
+					Timeout	next	= timeout.next;
+					if (timeout.deadline <= nowTick)		// later revolutions stay in the slot
+					{
+						unlink(timeout);
+						if (expired == null)
+							expired	= new ArrayList<>();
+						expired.add(timeout.task);
+					}
+					timeout	= next;
+				}
+			}
+			if (nowTick > currentTick)
+				currentTick	= nowTick;
+		}
+		// the tasks are run outside of the lock, as they may schedule other timeouts;
+		// a task throwing is reported and does not prevent the others from running
+		if (expired != null)
+			for (Runnable task : expired)
+			{
+				try
+				{
+					task.run();
+				}
+				catch (RuntimeException e)
+				{
+					System.err.println("RWGui: a timed task failed: " + e);
+					e.printStackTrace();
+				}
+			}
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private static void link(Timeout timeout)
+	{
+		int		slot	= (int)(timeout.deadline & WHEEL_MASK);
+		timeout.next	= slots[slot];
+		if (timeout.next != null)
+			timeout.next.prev	= timeout;
+		slots[slot]		= timeout;
+		timeout.linked	= true;
+	}
+
+	private static void unlink(Timeout timeout)
+	{
+		if (timeout.prev != null)
+			timeout.prev.next	= timeout.next;
+		else
+			slots[(int)(timeout.deadline & WHEEL_MASK)]	= timeout.next;
+		if (timeout.next != null)
+			timeout.next.prev	= timeout.prev;
+		timeout.prev	= timeout.next	= null;
+		timeout.linked	= false;
+	}
+
+	/**
+	 * A timeout scheduled in the wheel.
+	 */
+	static final class Timeout
+	{
+		private final	long		deadline;		// in ticks
+		private final	Runnable	task;
+		private			Timeout		prev, next;
+		private			boolean		linked;
+
+		private Timeout(long deadline, Runnable task)
+		{
+			this.deadline	= deadline;
+			this.task		= task;
+		}
+
+		/**
+		 * Cancels the timeout, if it has not expired yet.
+		 * @return	true if the timeout was cancelled, false if it had
+		 *			already expired or been cancelled.
+		 */
+		boolean cancel()
+		{
+			synchronized(TimerWheel.class)
+			{
+				if (!linked)
+					return false;
+				unlink(this);
+				return true;
+			}
+		}
+	}
+}
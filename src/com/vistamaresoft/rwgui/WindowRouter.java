@@ -0,0 +1,161 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	WindowRouter.java - Keeps the window stack of each player and routes GUI
+		events to the windows they are meant for.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import net.risingworld.api.events.player.gui.PlayerGuiElementClickEvent;
+import net.risingworld.api.events.player.gui.PlayerGuiInputEvent;
+import net.risingworld.api.gui.GuiElement;
+import net.risingworld.api.objects.Player;
+
+/**
+ * The registry of the 'display stack' of GuiModalWindow's of each player and
+ * the router of the GUI events received by the RWGui plug-in to the windows
+ * they are meant for.
+ * <p>A window is pushed on the stack of a player when shown to the player
+ * and stays there, even if covered by other windows pushed over it, until it
+ * is closed for the player.
+ * <p>An event is offered to the windows of the player originating it from
+ * the top of the stack down, and delivered to the first one owning the
+ * element the event is about: the top window has the first refusal, but
+ * windows below it (for instance, several windows opened with show()) still
+ * get the events about their own elements. Covered windows which are kept on
+ * the player screen, hidden, because retained (see
+ * GuiModalWindow.setRetained()) are skipped. As each window finds its
+ * elements with a look-up in its own index, the cost of routing an event
+ * depends only on the depth of the stack of the player, neither on the
+ * number of windows open on the server nor on their sizes.
+ * <p>All the methods are thread-safe.
+ */
+final class WindowRouter
+{
+	//
+	// FIELDS
+	//
+	// player (session) id -> window stack of the player, top window last
+	private static final	Map<Integer,ArrayList<GuiModalWindow>>	windows	= new HashMap<>();
+
+	private WindowRouter()	{	}
+
+	//********************
+	// PACKAGE METHODS
+	//********************
+
+	/**
+	 * Pushes window on the stack of player; does nothing if already in the stack.
+	 */
+	static synchronized void push(Player player, GuiModalWindow window)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		if (list == null)
+		{
+			list	= new ArrayList<>(2);
+			windows.put(player.getID(), list);
+		}
+		if (!list.contains(window))
+			list.add(window);
+	}
+
+	/**
+	 * Removes window from the stack of player, wherever it is in the stack;
+	 * does nothing if not in the stack.
+	 */
+	static synchronized void remove(Player player, GuiModalWindow window)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		if (list != null)
+		{
+			list.remove(window);
+			if (list.isEmpty())
+				windows.remove(player.getID());
+		}
+	}
+
+	/**
+	 * Returns the top window of the stack of player or null if the stack is empty.
+	 */
+	static synchronized GuiModalWindow getTop(Player player)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		return list != null ? list.get(list.size() - 1) : null;
+	}
+
+	/**
+	 * Whether window is in the stack of player, covered or not.
+	 */
+	static synchronized boolean contains(Player player, GuiModalWindow window)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		return list != null && list.contains(window);
+	}
+
+	/**
+	 * Returns the number of windows in the stack of player.
+	 */
+	static synchronized int getDepth(Player player)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		return list != null ? list.size() : 0;
+	}
+
+	/**
+	 * Forgets the window stack of player, typically on disconnection.
+	 */
+	static synchronized void removePlayer(Player player)
+	{
+		windows.remove(player.getID());
+	}
+
+	/**
+	 * Delivers a click event to the window owning the clicked element, if any.
+	 */
+	static void routeClick(PlayerGuiElementClickEvent event)
+	{
+		GuiModalWindow	window	= findOwner(event.getPlayer(), event.getGuiElement());
+		if (window != null)
+			window.onClick(event);
+	}
+
+	/**
+	 * Delivers a text entry event to the window owning the text field, if any.
+	 */
+	static void routeTextEntry(PlayerGuiInputEvent event)
+	{
+		GuiModalWindow	window	= findOwner(event.getPlayer(), event.getGuiElement());
+		if (window != null)
+			window.onTextEntry(event);
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Returns the topmost window of the stack of player owning element, or
+	// null if none; windows hidden while covered are skipped.
+	// The window is called outside of the lock, as it may show or close windows.
+	private static synchronized GuiModalWindow findOwner(Player player, GuiElement element)
+	{
+		ArrayList<GuiModalWindow>	list	= windows.get(player.getID());
+		if (list == null || element == null)
+			return null;
+		for (int i = list.size() - 1; i >= 0; i--)
+		{
+			GuiModalWindow	window	= list.get(i);
+			if (!window.isCoveredRetained() && window.ownsElement(element))
+				return window;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,144 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiExecutorTest.java - Unit tests of the GuiExecutor task queue.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+// The tests run without the game, i.e. without a tick: posted tasks are
+// run at once, one at a time, by the posting threads.
+public class GuiExecutorTest
+{
+	private static final	int		PRODUCERS	= 8;
+	private static final	int		TASKS		= 10000;
+
+	//********************
+	// SINGLE THREAD
+	//********************
+
+	@Test
+	public void postRunsTaskAsGuiThread()
+	{
+		AtomicBoolean	onGui	= new AtomicBoolean();
+		assertFalse(GuiExecutor.isGuiThread());
+		GuiExecutor.post(() -> onGui.set(GuiExecutor.isGuiThread()));
+		assertTrue(onGui.get());
+		assertFalse(GuiExecutor.isGuiThread());
+	}
+
+	@Test
+	public void taskPostedByATaskRunsAtOnce()
+	{
+		List<Integer>	order	= new ArrayList<>();
+		GuiExecutor.post(() ->
+		{
+			order.add(1);
+			GuiExecutor.post(() -> order.add(2));
+			order.add(3);
+		});
+		assertEquals(3, order.size());
+		for (int i = 0; i < 3; i++)
+			assertEquals(i + 1, (int)order.get(i));
+	}
+
+	@Test
+	public void executeFromATaskRunsAtOnce()
+	{
+		List<Integer>	order	= new ArrayList<>();
+		GuiExecutor.post(() ->
+		{
+			order.add(1);
+			GuiExecutor.execute(() -> order.add(2));
+			order.add(3);
+		});
+		for (int i = 0; i < 3; i++)
+			assertEquals(i + 1, (int)order.get(i));
+	}
+
+	@Test
+	public void failingTaskDoesNotStopTheQueue()
+	{
+		AtomicInteger	runs	= new AtomicInteger();
+		GuiExecutor.post(() ->
+		{
+			GuiExecutor.post(() -> { throw new IllegalStateException("test"); });
+			GuiExecutor.post(runs::incrementAndGet);
+		});
+		assertEquals(1, runs.get());
+		GuiExecutor.post(runs::incrementAndGet);
+		assertEquals(2, runs.get());
+	}
+
+	//********************
+	// MULTIPLE PRODUCERS
+	//********************
+
+	@Test
+	public void concurrentProducersLoseNothingAndKeepTheirOrder() throws InterruptedException
+	{
+		AtomicInteger	running	= new AtomicInteger();
+		AtomicBoolean	overlap	= new AtomicBoolean();
+		int[]			counts	= new int[PRODUCERS];		// only touched by the tasks
+		int[]			last	= new int[PRODUCERS];
+		AtomicBoolean	reorder	= new AtomicBoolean();
+		CountDownLatch	start	= new CountDownLatch(1);
+		Thread[]		threads	= new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++)
+		{
+			final int	producer	= p;
+			last[p]		= -1;
+			threads[p]	= new Thread(() ->
+			{
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+				for (int i = 0; i < TASKS; i++)
+				{
+					final int	seq	= i;
+					GuiExecutor.post(() ->
+					{
+						if (running.incrementAndGet() != 1)
+							overlap.set(true);
+						if (seq != last[producer] + 1)
+							reorder.set(true);
+						last[producer]	= seq;
+						counts[producer]++;
+						running.decrementAndGet();
+					});
+				}
+			});
+			threads[p].start();
+		}
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		synchronized(GuiExecutor.class)			// the tasks run holding the executor lock
+		{
+			for (int p = 0; p < PRODUCERS; p++)
+				assertEquals(TASKS, counts[p]);
+		}
+		assertFalse("tasks ran concurrently", overlap.get());
+		assertFalse("tasks of a producer ran out of order", reorder.get());
+	}
+}
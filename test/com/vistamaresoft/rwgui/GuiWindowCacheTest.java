@@ -0,0 +1,208 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	GuiWindowCacheTest.java - Unit tests of GuiWindowCache.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import net.risingworld.api.Plugin;
+import net.risingworld.api.objects.Player;
+
+public class GuiWindowCacheTest
+{
+	private final	Plugin	plugin	= new TestPlugin();
+	private final	Player	player1	= new TestPlayer(1);
+	private final	Player	player2	= new TestPlayer(2);
+
+	@Before
+	public void setUp()
+	{
+		GuiWindowCache.clear();
+		GuiWindowCache.setCapacity(64);
+	}
+
+	@After
+	public void tearDown()
+	{
+		GuiWindowCache.clear();
+		GuiWindowCache.setCapacity(64);
+	}
+
+	//********************
+	// HITS AND MISSES
+	//********************
+
+	@Test
+	public void releasedWindowIsReturnedForTheSameKey()
+	{
+		long		misses	= GuiWindowCache.getMisses();
+		long		hits	= GuiWindowCache.getHits();
+		TestWindow	window	= get("a", player1);
+		assertEquals(misses + 1, GuiWindowCache.getMisses());
+		GuiWindowCache.release(window);
+		assertEquals(1, GuiWindowCache.getSize());
+
+		assertSame(window, get("a", player1));
+		assertEquals(hits + 1, GuiWindowCache.getHits());
+		assertEquals(0, GuiWindowCache.getSize());
+		assertFalse(window.freed);
+	}
+
+	@Test
+	public void keysIncludePluginAndPlayer()
+	{
+		TestWindow	window	= get("a", player1);
+		GuiWindowCache.release(window);
+		assertNotSame(window, get("b", player1));
+		assertNotSame(window, get("a", player2));
+		assertNotSame(window, GuiWindowCache.get(new TestPlugin(), "a", player1, this::build));
+		assertSame(window, get("a", player1));
+	}
+
+	//********************
+	// EVICTION
+	//********************
+
+	@Test
+	public void leastRecentlyUsedIsEvicted()
+	{
+		GuiWindowCache.setCapacity(2);
+		long		evictions	= GuiWindowCache.getEvictions();
+		TestWindow	a	= get("a", player1);
+		TestWindow	b	= get("b", player1);
+		TestWindow	c	= get("c", player1);
+		GuiWindowCache.release(a);
+		GuiWindowCache.release(b);
+		GuiWindowCache.release(c);
+		assertTrue(a.freed);
+		assertNull(a.cacheKey);
+		assertFalse(b.freed);
+		assertFalse(c.freed);
+		assertEquals(2, GuiWindowCache.getSize());
+		assertEquals(evictions + 1, GuiWindowCache.getEvictions());
+	}
+
+	@Test
+	public void shrinkingTheCapacityFreesTheExcess()
+	{
+		TestWindow	a	= get("a", player1);
+		TestWindow	b	= get("b", player1);
+		GuiWindowCache.release(a);
+		GuiWindowCache.release(b);
+		GuiWindowCache.setCapacity(0);
+		assertTrue(a.freed);
+		assertTrue(b.freed);
+		assertEquals(0, GuiWindowCache.getSize());
+
+		TestWindow	c	= get("c", player1);
+		GuiWindowCache.release(c);				// a disabled cache frees at once
+		assertTrue(c.freed);
+	}
+
+	@Test
+	public void secondWindowWithTheSameKeyReplacesTheFirst()
+	{
+		TestWindow	first	= get("a", player1);
+		TestWindow	second	= get("a", player1);		// the first one still in use
+		GuiWindowCache.release(first);
+		GuiWindowCache.release(second);
+		assertTrue(first.freed);
+		assertFalse(second.freed);
+		assertEquals(1, GuiWindowCache.getSize());
+		assertSame(second, get("a", player1));
+	}
+
+	//********************
+	// REMOVAL
+	//********************
+
+	@Test
+	public void removePlayerFreesOnlyItsWindows()
+	{
+		TestWindow	a1	= get("a", player1);
+		TestWindow	a2	= get("a", player2);
+		GuiWindowCache.release(a1);
+		GuiWindowCache.release(a2);
+		GuiWindowCache.removePlayer(player1);
+		assertTrue(a1.freed);
+		assertFalse(a2.freed);
+		assertEquals(1, GuiWindowCache.getSize());
+	}
+
+	@Test
+	public void clearFreesAll()
+	{
+		TestWindow	a	= get("a", player1);
+		GuiWindowCache.release(a);
+		GuiWindowCache.clear();
+		assertTrue(a.freed);
+		assertEquals(0, GuiWindowCache.getSize());
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private TestWindow get(String key, Player player)
+	{
+		return GuiWindowCache.get(plugin, key, player, this::build);
+	}
+
+	private TestWindow build()
+	{
+		return new TestWindow(plugin);
+	}
+
+	private static final class TestWindow extends GuiModalWindow
+	{
+		boolean	freed;
+
+		TestWindow(Plugin plugin)
+		{
+			super(plugin, "Test", RWGui.LAYOUT_VERT, null);
+		}
+
+		@Override
+		public void free()
+		{
+			freed	= true;
+			super.free();
+		}
+	}
+
+	private static final class TestPlugin extends Plugin
+	{
+		@Override
+		public void onEnable()	{	}
+		@Override
+		public void onDisable()	{	}
+	}
+
+	private static final class TestPlayer extends Player
+	{
+		private final	int	id;
+
+		TestPlayer(int id)
+		{
+			this.id	= id;
+		}
+
+		@Override
+		public int getID()	{ return id;	}
+	}
+}
@@ -0,0 +1,164 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	ItemIndexTest.java - Unit tests of ItemIndex.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import net.risingworld.api.gui.GuiElement;
+import net.risingworld.api.gui.GuiPanel;
+
+public class ItemIndexTest
+{
+	private final	ItemIndex	index	= new ItemIndex();
+
+	//********************
+	// ELEMENTS
+	//********************
+
+	@Test
+	public void putGetMoveRemove()
+	{
+		GuiElement	element	= new GuiPanel();
+		assertNull(index.get(element));
+		index.put(element, null, 3);
+		assertSame(element, index.get(element).element);
+		assertEquals(3, index.get(element).index);
+		index.move(element, null, 1);
+		assertEquals(1, index.get(element).index);
+		index.remove(element);
+		assertNull(index.get(element));
+	}
+
+	@Test
+	public void removeAlsoRemovesTheId()
+	{
+		GuiElement	element	= indexed(5);
+		index.remove(element);
+		assertNull(index.getElement(5));
+	}
+
+	//********************
+	// IDS
+	//********************
+
+	@Test
+	public void sharedIdsAreChainedInIndexOrder()
+	{
+		GuiElement	first	= indexed(7);
+		GuiElement	second	= indexed(7);
+		GuiElement	third	= indexed(7);
+		assertSame(first, index.getElement(7));
+		assertSame(second, index.getFirst(7).nextSameId.element);
+		assertSame(third, index.getFirst(7).nextSameId.nextSameId.element);
+
+		index.removeId(7, first);
+		assertSame(second, index.getElement(7));
+		index.remove(third);
+		assertSame(second, index.getElement(7));
+		assertNull(index.getFirst(7).nextSameId);
+		index.removeId(7, second);
+		assertNull(index.getElement(7));
+	}
+
+	@Test
+	public void putIdMovesTheElementToTheNewId()
+	{
+		GuiElement	element	= indexed(1);
+		index.putId(2, element);
+		assertNull(index.getElement(1));
+		assertSame(element, index.getElement(2));
+		index.removeId(1, element);				// not its id: ignored
+		assertSame(element, index.getElement(2));
+	}
+
+	@Test
+	public void removingCollidingIdShiftsTheOthersBack()
+	{
+		// ids sharing their home slot, plus one whose home slot is the next
+		// one, all placed in the same probe sequence of the initial table
+		int[]	ids		= collidingIds(3);
+		int		nextId	= idWithHome(home(ids[0]) + 1);
+		GuiElement[]	elements	= new GuiElement[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			elements[i]	= indexed(ids[i]);
+		GuiElement	next	= indexed(nextId);
+
+		index.remove(elements[0]);
+		assertNull(index.getElement(ids[0]));
+		assertSame(elements[1], index.getElement(ids[1]));
+		assertSame(elements[2], index.getElement(ids[2]));
+		assertSame(next, index.getElement(nextId));
+
+		index.remove(elements[2]);
+		assertSame(elements[1], index.getElement(ids[1]));
+		assertSame(next, index.getElement(nextId));
+		assertNull(index.getElement(ids[2]));
+	}
+
+	@Test
+	public void manyIdsSurviveResizesAndRemovals()
+	{
+		List<GuiElement>	elements	= new ArrayList<>();
+		for (int id = 0; id < 1000; id++)
+			elements.add(indexed(id));
+		for (int id = 1; id < 1000; id += 2)
+			index.remove(elements.get(id));
+		for (int id = 0; id < 1000; id++)
+		{
+			if ((id & 1) == 0)
+				assertSame(elements.get(id), index.getElement(id));
+			else
+				assertNull(index.getElement(id));
+		}
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private GuiElement indexed(int id)
+	{
+		GuiElement	element	= new GuiPanel();
+		index.put(element, null, 0);
+		index.putId(id, element);
+		return element;
+	}
+
+	// The home slot of id in the initial table, spreading id as ItemIndex does.
+	private static int home(int id)
+	{
+		int	h	= id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & 15;
+	}
+
+	private static int[] collidingIds(int count)
+	{
+		int[]	ids		= new int[count];
+		int		found	= 0;
+		for (int id = 1; found < count; id++)
+			if (home(id) == home(ids[0] == 0 ? id : ids[0]))
+				ids[found++]	= id;
+		return ids;
+	}
+
+	private static int idWithHome(int slot)
+	{
+		int	id	= 1;
+		while (home(id) != (slot & 15))
+			id++;
+		return id;
+	}
+}
@@ -0,0 +1,184 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	PlayerDirectoryTest.java - Unit tests of PlayerDirectory.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import com.vistamaresoft.rwgui.RWGui.Pair;
+
+public class PlayerDirectoryTest
+{
+	//********************
+	// HASH INDICES
+	//********************
+
+	@Test
+	public void looksUpByIdAndName()
+	{
+		PlayerDirectory	dir	= directory("Alice", 3, "Bob", 1, "Carol", 2);
+		assertEquals("Alice", dir.getName(3));
+		assertEquals("Bob", dir.getName(1));
+		assertEquals("Carol", dir.getName(2));
+		assertNull(dir.getName(4));
+		assertEquals(3, dir.getDbId("Alice"));
+		assertEquals(2, dir.getDbId("Carol"));
+		assertEquals(0, dir.getDbId("Dave"));
+		assertEquals(0, dir.getDbId(null));
+	}
+
+	@Test
+	public void duplicateNameMapsToFirstInSortOrder()
+	{
+		PlayerDirectory	dir	= directory("Bob", 7, "Bob", 5);
+		assertEquals(7, dir.getDbId("Bob"));
+		assertEquals(0, dir.indexOf(7));
+		assertEquals(1, dir.indexOf(5));
+	}
+
+	@Test
+	public void findsAllPlayersOfALargeDirectory()
+	{
+		// enough players to collide and to wrap around the hash tables
+		List<Pair<Integer,String>>	players	= new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			players.add(new Pair<>(i * 16, name(i)));
+		PlayerDirectory	dir	= new PlayerDirectory(players);
+		for (int i = 0; i < 1000; i++)
+		{
+			assertEquals(name(i), dir.getName(i * 16));
+			assertEquals(i * 16, dir.getDbId(name(i)));
+			assertEquals(i, dir.indexOf(i * 16));
+		}
+		assertNull(dir.getName(8));
+		assertEquals(-1, dir.indexOf(8));
+	}
+
+	@Test
+	public void ignoresPlayersWithoutName()
+	{
+		PlayerDirectory	dir	= directory(null, 9, "Alice", 1);
+		assertNull(dir.getName(9));
+		assertEquals(-1, dir.indexOf(9));
+		assertEquals(1, dir.indexOf(1));
+	}
+
+	//********************
+	// ADDING PLAYERS
+	//********************
+
+	@Test
+	public void withPlayerInsertsInNameOrder()
+	{
+		PlayerDirectory	dir		= directory("Alice", 1, "Carol", 3);
+		PlayerDirectory	newDir	= dir.withPlayer(2, "Bob");
+		assertEquals(2, dir.getPlayers().size());
+		assertNull(dir.getName(2));
+		assertEquals(3, newDir.getPlayers().size());
+		assertEquals("Bob", newDir.getPlayers().get(1).getR());
+		assertEquals("Bob", newDir.getName(2));
+		assertEquals(2, newDir.getDbId("Bob"));
+		assertEquals(2, newDir.indexOf(3));
+	}
+
+	@Test
+	public void withPlayerKeepsExistingId()
+	{
+		PlayerDirectory	dir	= directory("Alice", 1);
+		assertSame(dir, dir.withPlayer(1, "Other"));
+		assertSame(dir, dir.withPlayer(2, null));
+	}
+
+	@Test
+	public void withPlayerGrowsTheIndices()
+	{
+		PlayerDirectory	dir	= new PlayerDirectory();
+		for (int i = 0; i < 100; i++)
+			dir	= dir.withPlayer(i + 1, name(i));
+		assertEquals(100, dir.getPlayers().size());
+		for (int i = 0; i < 100; i++)
+		{
+			assertEquals(name(i), dir.getName(i + 1));
+			assertEquals(i + 1, dir.getDbId(name(i)));
+			assertEquals(i, dir.indexOf(i + 1));
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void playerListIsReadOnly()
+	{
+		directory("Alice", 1).getPlayers().clear();
+	}
+
+	//********************
+	// PREFIX INDEX
+	//********************
+
+	@Test
+	public void prefixRangeIgnoresCase()
+	{
+		PlayerDirectory	dir	= directory("Anna", 1, "Bob", 2, "alberto", 3, "bea", 4, "B\u00e9la", 5);
+		int	start	= dir.prefixStart("AL");
+		int	end		= dir.prefixEnd("AL");
+		assertEquals(1, end - start);
+		assertEquals("alberto", dir.getInPrefixOrder(start).getR());
+
+		start	= dir.prefixStart("b");
+		end		= dir.prefixEnd("b");
+		assertEquals(3, end - start);
+		assertEquals("bea", dir.getInPrefixOrder(start).getR());
+		assertEquals("Bob", dir.getInPrefixOrder(start + 1).getR());
+		assertEquals("B\u00e9la", dir.getInPrefixOrder(start + 2).getR());
+	}
+
+	@Test
+	public void prefixRangeOfMissingPrefixIsEmpty()
+	{
+		PlayerDirectory	dir	= directory("Anna", 1, "Bob", 2);
+		assertEquals(dir.prefixStart("c"), dir.prefixEnd("c"));
+		assertEquals(2, dir.prefixStart("zz"));
+		assertEquals(0, dir.prefixStart(""));
+		assertEquals(2, dir.prefixEnd(""));
+	}
+
+	@Test
+	public void prefixOrderIsInverseOfNameOrder()
+	{
+		PlayerDirectory	dir	= directory("Anna", 1, "Bob", 2, "alberto", 3, "bea", 4);
+		for (int i = 0; i < dir.getPlayers().size(); i++)
+			assertSame(dir.getPlayers().get(i), dir.getInPrefixOrder(dir.toPrefixOrder(i)));
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	// Builds a directory from name, DB ID couples, sorting them by name as
+	// RWGui does.
+	private static PlayerDirectory directory(Object... namesAndIds)
+	{
+		List<Pair<Integer,String>>	players	= new ArrayList<>();
+		for (int i = 0; i < namesAndIds.length; i += 2)
+			players.add(new Pair<>((Integer)namesAndIds[i + 1], (String)namesAndIds[i]));
+		players.sort((a, b) -> a.getR() == null ? (b.getR() == null ? 0 : -1)
+				: b.getR() == null ? 1 : a.getR().compareTo(b.getR()));
+		return new PlayerDirectory(players);
+	}
+
+	private static String name(int i)
+	{
+		return String.format("Player%04d", i);
+	}
+}
@@ -0,0 +1,104 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	TextMetricsTest.java - Unit tests of TextMetrics.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import net.risingworld.api.utils.Vector2i;
+
+public class TextMetricsTest
+{
+	private static final	int		FONT_SIZE	= 20;
+
+	//********************
+	// WIDTHS
+	//********************
+
+	@Test
+	public void widthAddsTheGlyphWidths()
+	{
+		// 'A' = 667, 'i' = 222, ' ' = 278 thousandths
+		assertEquals(667 + 222 + 278, TextMetrics.unscaledWidth("Ai "));
+		assertEquals((667 + 222) * FONT_SIZE / 1000.0f, TextMetrics.width("Ai", FONT_SIZE), 0.001f);
+		assertEquals(0, TextMetrics.unscaledWidth(""));
+	}
+
+	@Test
+	public void glyphsOutsideTheTableHaveTheAverageWidth()
+	{
+		int	average	= (int)(RWGui.AVG_CHAR_WIDTH1 * 1000);
+		assertEquals(average, TextMetrics.unscaledWidth("\u0416"));
+		// a surrogate pair is a single glyph
+		assertEquals(average, TextMetrics.unscaledWidth("\uD83D\uDE00"));
+		// a lone high surrogate at the end is a glyph of its own
+		assertEquals(667 + average, TextMetrics.unscaledWidth("A\uD83D"));
+	}
+
+	@Test
+	public void widthOfSeveralLinesIsTheWidestLine()
+	{
+		assertEquals(TextMetrics.width("MMM", FONT_SIZE), TextMetrics.width("i\nMMM\nii", FONT_SIZE), 0.001f);
+	}
+
+	//********************
+	// MEASURING
+	//********************
+
+	@Test
+	public void measureRoundsTheWidthUpAndCountsTheLines()
+	{
+		Vector2i	out		= new Vector2i();
+		assertSame(out, TextMetrics.measure("i", FONT_SIZE, out));
+		assertEquals((int)Math.ceil(222 * FONT_SIZE / 1000.0), out.x);
+		assertEquals(FONT_SIZE, out.y);
+
+		TextMetrics.measure("a\nb\nc", FONT_SIZE, out);
+		assertEquals(3 * FONT_SIZE, out.y);
+	}
+
+	@Test
+	public void emptyLinesCountOnlyBeforeText()
+	{
+		Vector2i	out		= new Vector2i();
+		// as String.split("\n"): leading and middle empty lines count, trailing ones do not
+		assertEquals(3 * FONT_SIZE, TextMetrics.measure("\n\na", FONT_SIZE, out).y);
+		assertEquals(3 * FONT_SIZE, TextMetrics.measure("a\n\nb", FONT_SIZE, out).y);
+		assertEquals(FONT_SIZE, TextMetrics.measure("a\n\n", FONT_SIZE, out).y);
+		assertEquals(FONT_SIZE, TextMetrics.measure("", FONT_SIZE, out).y);
+		assertEquals(0, TextMetrics.measure("", FONT_SIZE, out).x);
+	}
+
+	@Test
+	public void cachedSizesScaleWithTheFontSize()
+	{
+		Vector2i	small	= TextMetrics.measure("Hello", 10, new Vector2i());
+		Vector2i	large	= TextMetrics.measure("Hello", 30, new Vector2i());
+		assertEquals(10, small.y);
+		assertEquals(30, large.y);
+		assertEquals((int)Math.ceil(TextMetrics.unscaledWidth("Hello") * 30 / 1000.0), large.x);
+		assertEquals((int)Math.ceil(TextMetrics.unscaledWidth("Hello") * 10 / 1000.0), small.x);
+	}
+
+	@Test
+	public void measuresStayRightBeyondTheCacheSize()
+	{
+		Vector2i	out		= new Vector2i();
+		for (int i = 0; i < 3000; i++)
+		{
+			String	text	= Integer.toString(i);
+			TextMetrics.measure(text, 1000, out);
+			assertEquals(TextMetrics.unscaledWidth(text), out.x);
+			assertEquals(1000, out.y);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/****************************
+	R W G U I  -  A Rising World Java library for GUI elements.
+
+	TimerWheelTest.java - Unit tests of TimerWheel.
+
+	Created : 2026-10-18
+
+	Licensed under the Creative Commons by-sa 3.0 license (see http://creativecommons.org/licenses/by-sa/3.0/ for details)
+
+*****************************/
+
+package com.vistamaresoft.rwgui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerWheelTest
+{
+	private static final	long	TICK_MILLIS	= (long)(GuiExecutor.TICK_INTERVAL * 1000);
+	private static final	int		WHEEL_SIZE	= 512;
+
+	private final	AtomicInteger	runs	= new AtomicInteger();
+
+	@Before
+	public void catchUp()
+	{
+		TimerWheel.tick();			// turn the wheel to the current time
+	}
+
+	//********************
+	// EXPIRING
+	//********************
+
+	@Test
+	public void runsTaskOnlyOnceExpired()
+	{
+		TimerWheel.schedule(TICK_MILLIS * 3, runs::incrementAndGet);
+		TimerWheel.tick();
+		assertEquals(0, runs.get());
+		sleepTicks(5);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+		sleepTicks(2);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void zeroDelayWaitsForTheNextTick()
+	{
+		TimerWheel.schedule(0, runs::incrementAndGet);
+		sleepTicks(2);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void laterRevolutionsStayInTheirSlot()
+	{
+		// the same slot as a timeout due at the next tick, one revolution later
+		TimerWheel.Timeout	timeout	= TimerWheel.schedule(TICK_MILLIS * (WHEEL_SIZE + 1), runs::incrementAndGet);
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(0, runs.get());
+		assertTrue(timeout.cancel());
+	}
+
+	@Test
+	public void failingTaskDoesNotStopTheOthers()
+	{
+		TimerWheel.schedule(TICK_MILLIS, () -> { throw new IllegalStateException("test"); });
+		TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void taskCanScheduleAnother()
+	{
+		TimerWheel.schedule(TICK_MILLIS, () -> TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet));
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(0, runs.get());
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+	}
+
+	//********************
+	// CANCELLING
+	//********************
+
+	@Test
+	public void cancelledTaskDoesNotRun()
+	{
+		TimerWheel.Timeout	timeout	= TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	public void cancellingInTheMiddleOfASlotKeepsTheOthers()
+	{
+		TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		TimerWheel.Timeout	timeout	= TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		assertTrue(timeout.cancel());
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	public void expiredTimeoutCannotBeCancelled()
+	{
+		TimerWheel.Timeout	timeout	= TimerWheel.schedule(TICK_MILLIS, runs::incrementAndGet);
+		sleepTicks(3);
+		TimerWheel.tick();
+		assertEquals(1, runs.get());
+		assertFalse(timeout.cancel());
+	}
+
+	//********************
+	// PRIVATE HELPER METHODS
+	//********************
+
+	private static void sleepTicks(int ticks)
+	{
+		try
+		{
+			Thread.sleep(TICK_MILLIS * ticks);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}